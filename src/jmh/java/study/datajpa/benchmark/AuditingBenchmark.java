@@ -0,0 +1,60 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.dto.MemberImportRow;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//대량 insert 시 감사(auditing) 비용 -- 엔티티마다 UUID/시각 계산 vs 트랜잭션마다 한 번
+//./gradlew jmh -PjmhArgs="AuditingBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditingBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"true", "false"})
+    boolean perTransaction;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    List<MemberImportRow> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start(
+                "app.auditing.per-transaction=" + perTransaction,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        memberRepository = context.getBean(MemberRepository.class);
+        rows = IntStream.range(0, BATCH_SIZE)
+                .mapToObj(i -> new MemberImportRow("member" + i, i % 100, null))
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Iteration)
+    public void clean() {
+        memberRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //결과는 insert 한 건의 시간 -- BATCH_SIZE 건을 한 번에 넣고 건수로 나눈다.
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long batchInsert() {
+        return memberRepository.importMembers(rows.iterator(), BATCH_SIZE);
+    }
+}
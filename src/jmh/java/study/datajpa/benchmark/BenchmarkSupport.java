@@ -0,0 +1,72 @@
+package study.datajpa.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.dto.MemberImportRow;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//벤치마크마다 임베디드 H2(메모리)로 스프링 컨텍스트를 띄우고 데이터를 넣는다.
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    //properties 는 "key=value" 형식, 기본 설정을 덮어쓴다.
+    //같은 key 를 커맨드라인 인자로 두 번 넘기면 값이 "a,b" 로 합쳐지므로 key 별로 하나만 남긴다.
+    public static ConfigurableApplicationContext start(String... properties) {
+        Map<String, String> args = new LinkedHashMap<>();
+        for (String property : Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "decorator.datasource.p6spy.enable-logging=false",
+                "logging.level.root=warn")) {
+            put(args, property);
+        }
+        for (String property : properties) {
+            put(args, property);
+        }
+        return new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.values().toArray(new String[0]));
+    }
+
+    private static void put(Map<String, String> args, String property) {
+        args.put(property.substring(0, property.indexOf('=')), "--" + property);
+    }
+
+    //2차 캐시, 쿼리 캐시 없이 매번 DB 에서 읽는 설정
+    public static String[] withoutCache() {
+        return new String[]{
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false"};
+    }
+
+    //member{i} 회원을 memberCount 명, team{i % teamCount} 팀에 나누어 넣는다.
+    public static void seed(ConfigurableApplicationContext context, int memberCount, int teamCount) {
+        MemberRepository memberRepository = context.getBean(MemberRepository.class);
+        List<MemberImportRow> rows = IntStream.range(0, memberCount)
+                .mapToObj(i -> new MemberImportRow("member" + i, i % 100, "team" + (i % Math.max(teamCount, 1))))
+                .collect(Collectors.toList());
+        memberRepository.importMembers(rows.iterator(), 1000);
+    }
+
+    public static TransactionTemplate readOnlyTransaction(ConfigurableApplicationContext context) {
+        TransactionTemplate template = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        template.setReadOnly(true);
+        return template;
+    }
+}
@@ -0,0 +1,106 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberProjection;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.UsernameOnly;
+import study.datajpa.repository.UsernameOnlyDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//회원 + 팀을 읽는 방법별 비교 -- 처리량(thrpt), 지연시간 분포(sample), 할당률(-prof gc)
+//./gradlew jmh -PjmhArgs="FetchStrategyBenchmark -p memberCount=10000"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FetchStrategyBenchmark {
+
+    @Param({"100", "1000"})
+    int memberCount;
+
+    @Param({"10"})
+    int teamCount;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start(BenchmarkSupport.withoutCache());
+        memberRepository = context.getBean(MemberRepository.class);
+        BenchmarkSupport.seed(context, memberCount, teamCount);
+        readOnly = BenchmarkSupport.readOnlyTransaction(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //select m from Member m 후 member.team 지연 로딩 (팀 수 만큼 추가 쿼리)
+    @Benchmark
+    public void lazyLoading(Blackhole bh) {
+        readOnly.executeWithoutResult(status -> consumeTeams(memberRepository.findMemberCustom(), bh));
+    }
+
+    @Benchmark
+    public void fetchJoin(Blackhole bh) {
+        readOnly.executeWithoutResult(status -> consumeTeams(memberRepository.findMemberFetchJoin(), bh));
+    }
+
+    @Benchmark
+    public void entityGraph(Blackhole bh) {
+        readOnly.executeWithoutResult(status -> consumeTeams(memberRepository.findMemberEntityGraph(), bh));
+    }
+
+    @Benchmark
+    public void namedEntityGraph(Blackhole bh) {
+        readOnly.executeWithoutResult(status -> consumeTeams(memberRepository.findMemberEntityGraph2(), bh));
+    }
+
+    @Benchmark
+    public void dtoNewOperation(Blackhole bh) {
+        for (MemberDto dto : memberRepository.findMemberDto()) {
+            bh.consume(dto.getTeamName());
+        }
+    }
+
+    @Benchmark
+    public void nativeInterfaceProjection(Blackhole bh) {
+        for (MemberProjection projection : memberRepository.findByNativeProjection(PageRequest.of(0, memberCount))) {
+            bh.consume(projection.getTeamName());
+        }
+    }
+
+    //단건 조회 -- 열린 인터페이스 프로젝션(SpEL) vs 클래스 DTO 프로젝션
+    @Benchmark
+    public void openInterfaceProjection(Blackhole bh) {
+        for (UsernameOnly usernameOnly : memberRepository.findProjectionsByUsername("member1")) {
+            bh.consume(usernameOnly.getUsername());
+        }
+    }
+
+    @Benchmark
+    public void classDtoProjection(Blackhole bh) {
+        for (UsernameOnlyDto dto : memberRepository.findProjectionsDtoByUsername("member1")) {
+            bh.consume(dto.getUsername());
+        }
+    }
+
+    private static void consumeTeams(List<Member> members, Blackhole bh) {
+        for (Member member : members) {
+            bh.consume(member.getTeam().getName());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.dto.MemberImportRow;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//식별자 할당 크기(increment_size)별 insert 처리량 -- 1 이면 insert 마다 시퀀스 호출
+//./gradlew jmh -PjmhArgs="IdAllocationBenchmark -p optimizer=pooled"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdAllocationBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1", "50", "500"})
+    int incrementSize;
+
+    @Param({"pooled-lo"})
+    String optimizer;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    List<MemberImportRow> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start(
+                "spring.jpa.properties.app.id.member_seq.increment_size=" + incrementSize,
+                "spring.jpa.properties.app.id.member_seq.optimizer=" + optimizer,
+                "spring.jpa.properties.app.id.team_seq.increment_size=" + incrementSize,
+                "spring.jpa.properties.app.id.team_seq.optimizer=" + optimizer,
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false");
+        memberRepository = context.getBean(MemberRepository.class);
+        rows = IntStream.range(0, BATCH_SIZE)
+                .mapToObj(i -> new MemberImportRow("member" + i, i % 100, null))
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Iteration)
+    public void clean() {
+        memberRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //결과(ops/s)는 초당 insert 건수
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long batchInsert() {
+        return memberRepository.importMembers(rows.iterator(), BATCH_SIZE);
+    }
+}
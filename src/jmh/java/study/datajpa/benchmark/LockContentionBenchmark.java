@@ -0,0 +1,120 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.OptimisticRetryTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//hot 회원 몇 명을 writers 개의 스레드가 동시에 update -- 비관적 락(findLockByUsername) vs @Version + 재시도
+//한 번 호출에 UPDATES 건을 writers 스레드가 나누어 처리하므로 결과(ops/s)가 update 처리량이다.
+//changeFeed=true 면 모든 커밋이 change_counter 행에서 줄을 선다 -- false 와의 차이가 변경분 동기화(MemberChangeSequence)의 비용이다.
+//hotMembers 가 많을수록 회원 행 락 경합은 줄고 change_counter 경합만 남는다.
+//./gradlew jmh -PjmhArgs="LockContentionBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockContentionBenchmark {
+
+    private static final int UPDATES = 256;
+
+    @Param({"1", "4", "16", "64"})
+    int writers;
+
+    @Param({"1", "16"})
+    int hotMembers;
+
+    @Param({"true", "false"})
+    boolean changeFeed;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    OptimisticRetryTemplate optimisticRetryTemplate;
+    TransactionTemplate transaction;
+    ExecutorService executor;
+    List<Long> hotIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> properties = new ArrayList<>(List.of(BenchmarkSupport.withoutCache()));
+        properties.add("spring.datasource.hikari.maximum-pool-size=" + writers);
+        properties.add("spring.datasource.hikari.connection-init-sql=SET LOCK_TIMEOUT 60000"); //비관적 락 대기가 H2 기본(1초)을 넘는다
+        properties.add("app.change-feed.enabled=" + changeFeed);
+        properties.add("app.optimistic-retry.max-attempts=1000"); //처리량만 비교한다 -- 포기하지 않는다
+        properties.add("app.optimistic-retry.initial-backoff=1ms");
+        properties.add("app.optimistic-retry.max-backoff=20ms");
+        context = BenchmarkSupport.start(properties.toArray(new String[0]));
+        memberRepository = context.getBean(MemberRepository.class);
+        optimisticRetryTemplate = context.getBean(OptimisticRetryTemplate.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        executor = Executors.newFixedThreadPool(writers);
+
+        hotIds = new ArrayList<>();
+        for (int i = 0; i < hotMembers; i++) {
+            hotIds.add(memberRepository.save(new Member("hot" + i, 0)).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void pessimistic() throws Exception {
+        run(() -> transaction.executeWithoutResult(status ->
+                memberRepository.findLockByUsername(hotUsername())
+                        .forEach(member -> member.setAge(member.getAge() + 1))));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void optimistic() throws Exception {
+        run(() -> optimisticRetryTemplate.execute(status -> {
+            memberRepository.findById(hotId()).ifPresent(member -> member.setAge(member.getAge() + 1));
+            return null;
+        }));
+    }
+
+    private void run(Runnable update) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int share = UPDATES / writers + (w < UPDATES % writers ? 1 : 0);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < share; i++) {
+                    update.run();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private int hotIndex() {
+        return ThreadLocalRandom.current().nextInt(hotMembers);
+    }
+
+    private String hotUsername() {
+        return "hot" + hotIndex();
+    }
+
+    private Long hotId() {
+        return hotIds.get(hotIndex());
+    }
+}
@@ -0,0 +1,85 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.repository.MemberProjection;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.UsernameAgeDto;
+import study.datajpa.repository.UsernameOnly;
+
+import java.util.concurrent.TimeUnit;
+
+//프록시/SpEL 프로젝션 vs 생성자로 받는 닫힌 프로젝션 -- 처리량, 할당률(-prof gc)
+//./gradlew jmh -PjmhArgs="ProjectionBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    @Param({"1000"})
+    int memberCount;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start(BenchmarkSupport.withoutCache());
+        memberRepository = context.getBean(MemberRepository.class);
+        BenchmarkSupport.seed(context, memberCount, 10);
+        readOnly = BenchmarkSupport.readOnlyTransaction(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //열린 인터페이스 프로젝션 -- 엔티티 전체 조회 + 프록시 + SpEL
+    @Benchmark
+    public void openInterfaceProjection(Blackhole bh) {
+        readOnly.executeWithoutResult(status -> {
+            for (UsernameOnly usernameOnly : memberRepository.findProjectionsByUsername("member1")) {
+                bh.consume(usernameOnly.getUsername());
+            }
+        });
+    }
+
+    @Benchmark
+    public void closedClassProjection(Blackhole bh) {
+        readOnly.executeWithoutResult(status -> {
+            for (UsernameAgeDto dto : memberRepository.findUsernameAgeByUsername("member1")) {
+                bh.consume(dto.getUsernameAndAge());
+            }
+        });
+    }
+
+    //네이티브 쿼리 전체 -- 인터페이스 프록시(MemberProjection) vs @SqlResultSetMapping 생성자
+    @Benchmark
+    public void nativeInterfaceProjection(Blackhole bh) {
+        readOnly.executeWithoutResult(status -> {
+            for (MemberProjection projection : memberRepository.findListByNativeProjection(PageRequest.of(0, memberCount))) {
+                bh.consume(projection.getUsername());
+                bh.consume(projection.getTeamName());
+            }
+        });
+    }
+
+    @Benchmark
+    public void nativeConstructorResult(Blackhole bh) {
+        readOnly.executeWithoutResult(status -> {
+            for (MemberDto dto : memberRepository.findNativeMemberDto(PageRequest.of(0, memberCount))) {
+                bh.consume(dto.getUsername());
+                bh.consume(dto.getTeamName());
+            }
+        });
+    }
+}
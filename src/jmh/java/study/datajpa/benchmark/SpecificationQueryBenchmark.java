@@ -0,0 +1,62 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberSearchCondition;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.MemberSearchRepository;
+import study.datajpa.repository.MemberSpec;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//MemberSpec 조합(JpaSpecificationExecutor) vs 모양별로 캐시한 JPQL (MemberSearchRepository)
+//./gradlew jmh -PjmhArgs="SpecificationQueryBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpecificationQueryBenchmark {
+
+    @Param({"1000"})
+    int memberCount;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberSearchRepository memberSearchRepository;
+    TransactionTemplate readOnly;
+    MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.start(BenchmarkSupport.withoutCache());
+        memberRepository = context.getBean(MemberRepository.class);
+        memberSearchRepository = context.getBean(MemberSearchRepository.class);
+        BenchmarkSupport.seed(context, memberCount, 10);
+        readOnly = BenchmarkSupport.readOnlyTransaction(context);
+
+        condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        condition.setTeamName("team1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> specification() {
+        return readOnly.execute(status ->
+                memberRepository.findAll(MemberSpec.username("member1").and(MemberSpec.teamName("team1"))));
+    }
+
+    @Benchmark
+    public List<Member> cachedShape() {
+        return readOnly.execute(status -> memberSearchRepository.search(condition));
+    }
+}
@@ -0,0 +1,59 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+//SQL 로그 모드별 요청 비용 -- 회원 단건 + 목록 한 페이지 조회
+//P6SPY 는 이전 설정 (p6spy 기본 로거로 모든 SQL 을 요청 스레드에서 포맷/출력)
+//로그는 build/reports/jmh/sql-trace.log 로 보낸다.
+//./gradlew jmh -PjmhArgs="SqlTraceBenchmark"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SqlTraceBenchmark {
+
+    @Param({"OFF", "SAMPLED", "ALL", "P6SPY"})
+    String mode;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    Long memberId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean p6spy = "P6SPY".equals(mode);
+        context = BenchmarkSupport.start(
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                "app.sql-trace.mode=" + (p6spy ? "OFF" : mode),
+                "app.sql-trace.sample-rate=0.01",
+                "decorator.datasource.p6spy.enable-logging=" + p6spy,
+                "logging.file.name=build/reports/jmh/sql-trace.log",
+                "logging.level.study.datajpa.sql=info",
+                "logging.level.p6spy=info");
+        memberRepository = context.getBean(MemberRepository.class);
+        BenchmarkSupport.seed(context, 1000, 10);
+        memberId = memberRepository.findMemberDtoContent(PageRequest.of(0, 1)).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void request(Blackhole bh) {
+        bh.consume(memberRepository.findMemberDtoById(memberId));
+        bh.consume(memberRepository.findMemberDtoContent(PageRequest.of(0, 20, Sort.by("username"))));
+    }
+}
@@ -1,15 +1,21 @@
 package study.datajpa;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.auditing.CurrentDateTimeProvider;
+import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import study.datajpa.config.TransactionScopedAuditorAware;
+import study.datajpa.config.TransactionScopedDateTimeProvider;
 
+import java.time.Clock;
 import java.util.Optional;
 import java.util.UUID;
 
-@EnableJpaAuditing
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
 @SpringBootApplication
 public class DataJpaApplication {
 
@@ -19,8 +25,16 @@ public class DataJpaApplication {
 
 
 	@Bean
-	public AuditorAware<String> auditorProvider() {
-		return () -> Optional.of(UUID.randomUUID().toString());
+	public AuditorAware<String> auditorProvider(@Value("${app.auditing.per-transaction:true}") boolean perTransaction) {
+		AuditorAware<String> auditorAware = () -> Optional.of(UUID.randomUUID().toString());
 		//실제 업무에서는 UUID자리에 유저의 아이디가 들어간다 -- 스프링시큐리티나 세션에서 꺼내거나해서 넣어줄것
+		//엔티티마다 구하지 않고 트랜잭션마다 한 번만 구한다 (대량 insert 시 UUID 생성 비용)
+		return perTransaction ? new TransactionScopedAuditorAware<>(auditorAware) : auditorAware;
+	}
+
+	@Bean
+	public DateTimeProvider auditingDateTimeProvider(@Value("${app.auditing.per-transaction:true}") boolean perTransaction) {
+		//트랜잭션 안의 엔티티는 모두 같은 등록/수정 시각을 가진다
+		return perTransaction ? new TransactionScopedDateTimeProvider(Clock.systemDefaultZone()) : CurrentDateTimeProvider.INSTANCE;
 	}
 }
@@ -0,0 +1,38 @@
+package study.datajpa.config;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+//@GenericGenerator 에 적은 increment_size, optimizer 를 설정(spring.jpa.properties.app.id.{sequence_name}.*)으로 덮어쓴다.
+//예) spring.jpa.properties.app.id.member_seq.increment_size=500, optimizer=pooled
+//여러 인스턴스가 같은 시퀀스를 쓰므로 모든 인스턴스가 같은 increment_size 를 써야 한다.
+//이미 있는 DB 시퀀스의 increment by 와 다르면 하이버네이트가 기동 시 실패한다. (increment_size_mismatch_strategy 기본값 exception)
+//시퀀스 정보는 ddl-auto: create 가 시퀀스를 다시 만들기 전에 읽으므로 create 여도 이전 기동이 남긴 시퀀스와 비교한다.
+public class ConfigurableSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String SETTINGS_PREFIX = "app.id.";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        String sequenceName = params.getProperty(SEQUENCE_PARAM);
+        if (sequenceName != null) {
+            override(params, settings, SETTINGS_PREFIX + sequenceName + "." + INCREMENT_PARAM, INCREMENT_PARAM);
+            override(params, settings, SETTINGS_PREFIX + sequenceName + "." + OPT_PARAM, OPT_PARAM);
+        }
+        super.configure(type, params, serviceRegistry);
+    }
+
+    private static void override(Properties params, Map<?, ?> settings, String settingName, String paramName) {
+        Object value = settings.get(settingName);
+        if (value != null && !value.toString().isBlank()) {
+            params.setProperty(paramName, value.toString().trim());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.datajpa.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class PagingConfig {
+
+    //Page 의 count 쿼리를 실행하는 스레드 풀 (app.paging.parallel-count=true 일 때 사용, count 가 필요할 때만 제출한다)
+    //풀과 큐가 가득 차면 호출한 스레드에서 그냥 실행한다. -- 커넥션 풀 크기도 이만큼 여유가 있어야 한다.
+    @Bean
+    public ThreadPoolTaskExecutor pageCountExecutor(@Value("${app.paging.count-pool-size:4}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("page-count-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
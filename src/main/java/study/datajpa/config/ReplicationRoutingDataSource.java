@@ -0,0 +1,17 @@
+package study.datajpa.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//@Transactional(readOnly = true) 트랜잭션은 replica, 나머지는 primary 로 보낸다.
+//스프링 데이터 JPA 의 조회 메서드(findReadOnlyByUsername 등)는 기본이 readOnly 트랜잭션이다.
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+    }
+}
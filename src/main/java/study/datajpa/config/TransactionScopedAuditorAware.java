@@ -0,0 +1,21 @@
+package study.datajpa.config;
+
+import org.springframework.data.domain.AuditorAware;
+
+import java.util.Optional;
+
+//등록자/수정자를 엔티티마다 구하지 않고 트랜잭션마다 한 번만 구한다.
+public class TransactionScopedAuditorAware<T> implements AuditorAware<T> {
+
+    private final AuditorAware<T> delegate;
+    private final TransactionScopedValue<Optional<T>> auditor = new TransactionScopedValue<>();
+
+    public TransactionScopedAuditorAware(AuditorAware<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<T> getCurrentAuditor() {
+        return auditor.get(delegate::getCurrentAuditor);
+    }
+}
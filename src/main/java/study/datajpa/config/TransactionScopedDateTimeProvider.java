@@ -0,0 +1,24 @@
+package study.datajpa.config;
+
+import org.springframework.data.auditing.DateTimeProvider;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAccessor;
+import java.util.Optional;
+
+//@CreatedDate, @LastModifiedDate 에 트랜잭션 안의 모든 엔티티가 같은 시각을 쓴다. (시계를 트랜잭션마다 한 번만 읽는다)
+public class TransactionScopedDateTimeProvider implements DateTimeProvider {
+
+    private final Clock clock;
+    private final TransactionScopedValue<LocalDateTime> now = new TransactionScopedValue<>();
+
+    public TransactionScopedDateTimeProvider(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<TemporalAccessor> getNow() {
+        return Optional.of(now.get(() -> LocalDateTime.now(clock)));
+    }
+}
@@ -0,0 +1,43 @@
+package study.datajpa.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+//트랜잭션마다 한 번만 계산해서 재사용하는 값 (트랜잭션이 없으면 매번 계산한다)
+//REQUIRES_NEW 로 안쪽 트랜잭션이 시작되면 안쪽 트랜잭션은 따로 계산한다.
+class TransactionScopedValue<T> {
+
+    private final Object key = new Object();
+
+    @SuppressWarnings("unchecked")
+    T get(Supplier<T> loader) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return loader.get();
+        }
+        T value = (T) TransactionSynchronizationManager.getResource(key);
+        if (value == null) {
+            T loaded = loader.get();
+            TransactionSynchronizationManager.bindResource(key, loaded);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(key);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(key, loaded);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(key);
+                }
+            });
+            value = loaded;
+        }
+        return value;
+    }
+}
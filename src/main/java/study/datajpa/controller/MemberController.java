@@ -1,44 +1,212 @@
 package study.datajpa.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import study.datajpa.dto.MemberChangeStamp;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberImportException;
+import study.datajpa.dto.MemberImportRow;
+import study.datajpa.dto.MemberSearchCondition;
 import study.datajpa.entity.Member;
+import study.datajpa.repository.ChangeSlice;
+import study.datajpa.repository.InvalidCursorException;
+import study.datajpa.repository.KeysetSlice;
+import study.datajpa.repository.MemberNearCache;
+import study.datajpa.repository.MemberPageRepository;
 import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.MemberSearchRepository;
+import study.datajpa.repository.PageCountStrategy;
 
 import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_KEYSET_SIZE = 2000; // spring.data.web.pageable.max-page-size 와 맞춘다
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int IMPORT_CHUNK_SIZE = 1000; // hibernate.jdbc.batch_size(100) 의 배수로 잡는다
+
     private final MemberRepository memberRepository;
+    private final MemberPageRepository memberPageRepository;
+    private final MemberSearchRepository memberSearchRepository;
+    private final MemberNearCache memberNearCache;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/members/{id}")
-    private String findMember(@PathVariable("id") long id){
-        Optional<Member> byId = memberRepository.findById(id);
-        Member member = byId.orElseThrow();
+    private String findMember(@PathVariable("id") long id, WebRequest request){
+        // 같은 id 를 계속 조회하면 MemberNearCache 에서 바로 응답한다. (없는 id 도 잠깐 캐시)
+        Optional<MemberDto> byId = memberNearCache.get(id, () -> memberRepository.findMemberDtoById(id));
+        MemberDto member = byId.orElseThrow();
+        // If-None-Match / If-Modified-Since 가 lastModifiedDate 와 같으면 본문 없이 304
+        long lastModified = MemberChangeStamp.toEpochMilli(member.getLastModifiedDate());
+        if (request.checkNotModified("\"" + id + "-" + lastModified + "\"", lastModified)) {
+            return null;
+        }
         return member.getUsername();
     }
 
     @GetMapping("/members2/{id}")
-    private String findMember2(@PathVariable("id") Member member){
-        return member.getUsername();
+    private String findMember2(@PathVariable("id") long id){
+        // @PathVariable("id") Member member -- 도메인 클래스 컨버터는 매번 findById 로 DB 를 조회하므로 캐시를 거치도록 id 로 받는다.
+        return memberNearCache.get(id, () -> memberRepository.findMemberDtoById(id))
+                .map(MemberDto::getUsername)
+                .orElseThrow();
     }
 
     @GetMapping("/members")
-    public Page<MemberDto> list(@PageableDefault(size = 5,sort = "username") Pageable pageable) {
+    public Page<MemberDto> list(@PageableDefault(size = 5,sort = "username") Pageable pageable,
+                                @RequestParam(value = "count", defaultValue = "EXACT") PageCountStrategy count,
+                                WebRequest request) {
         // Entity는 변경될 가능성이있기에 API에 Entity를 바로 반환하면 안된다, 반드시 DTO로 변환하여 반환할것
         // /members?page=0&size=3&sort=id,desc&sort=username,desc
-        Page<Member> all = memberRepository.findAll(pageable);
-        Page<MemberDto> map = all.map(member -> new MemberDto(member));
-        return map;
+        // /members?page=3&count=CACHED  -- 전체 카운트를 구하는 방법 (EXACT, CACHED, FIRST_PAGE_ONLY, ESTIMATED)
+        // 회원, 팀의 max(lastModifiedDate) 와 캐시된 건수만 먼저 조회해서 ETag(If-None-Match)가 같으면 목록을 조회하지 않고 304
+        // 삭제는 수정 시각을 바꾸지 않으므로 If-Modified-Since 만으로는 304 를 주지 않는다. (Last-Modified 를 내려주지 않는다)
+        MemberChangeStamp stamp = memberPageRepository.findChangeStamp();
+        if (request.checkNotModified(stamp.etag(pageable + "|" + count))) {
+            return null;
+        }
+        // 엔티티를 조회해서 변환하지 않고 DTO 로 바로 조회한다. (팀 이름까지 쿼리 한 번, 지연 로딩 없음)
+        return memberPageRepository.findMemberDto(pageable, count);
+    }
+
+    @GetMapping("/members/search")
+    public Page<MemberDto> search(MemberSearchCondition condition,
+                                  @PageableDefault(size = 5, sort = "username") Pageable pageable) {
+        // 값이 있는 조건만 and 로 묶는다. 조건마다 인덱스가 있다. (Member, Team 의 @Table(indexes))
+        // /members/search?teamName=teamA&ageGoe=10&ageLoe=20&createdFrom=2023-01-01T00:00:00
+        Page<Member> result = memberSearchRepository.search(condition, pageable);
+        return result.map(member -> new MemberDto(member));
+    }
+
+    @GetMapping("/members/keyset")
+    public KeysetSlice<MemberDto> keyset(@RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "size", defaultValue = "5") int size,
+                                         @RequestParam(value = "sort", defaultValue = "username") String sort) {
+        // offset 대신 이전 응답의 nextCursor 를 넘겨서 다음 페이지를 조회한다. 깊은 페이지도 첫 페이지와 비용이 같다.
+        // /members/keyset?size=3  ->  /members/keyset?size=3&cursor={nextCursor}
+        int limit = Math.max(1, Math.min(size, MAX_KEYSET_SIZE));
+        KeysetSlice<Member> slice = "id".equals(sort)
+                ? memberRepository.findKeysetById(cursor, limit)
+                : memberRepository.findKeysetByUsername(cursor, limit);
+        return slice.map(member -> new MemberDto(member));
+    }
+
+    @GetMapping("/members/changes")
+    public ChangeSlice<MemberDto> changes(@RequestParam(value = "since", required = false) String since,
+                                          @RequestParam(value = "size", defaultValue = "500") int size) {
+        // 전체 목록을 다시 받지 않고 이전 응답의 nextWatermark 이후에 수정된 회원만 받는다. (hasMore 면 바로 이어서 요청)
+        // /members/changes  ->  /members/changes?since={nextWatermark}
+        // 워터마크는 커밋 순서 번호라서 커밋이 늦은 트랜잭션의 변경도 다음 동기화에서 받는다. (MemberChangeSequence)
+        int limit = Math.max(1, Math.min(size, MAX_KEYSET_SIZE));
+        return memberRepository.findChangedSince(since, limit);
+    }
+
+    @GetMapping(value = "/members/export", produces = "application/x-ndjson")
+    public void export(HttpServletResponse response) throws IOException {
+        // 한 줄에 회원 한 명(JSON)씩, 조회되는 대로 바로 응답에 쓴다 -- 전체 목록을 메모리에 올리지 않는다.
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+        memberRepository.streamMemberDto(EXPORT_FETCH_SIZE, dto -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(dto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    @PostMapping(value = "/members/import", consumes = "text/csv")
+    public long importCsv(InputStream body) {
+        // 한 줄에 username,age,teamName -- 요청 본문을 한 줄씩 읽으면서 바로 저장한다.
+        // 첫 줄이 헤더(username,age,teamName)면 건너뛴다. 잘못된 줄이 있으면 전체를 롤백하고 그 줄 번호로 400
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        AtomicLong lineNumber = new AtomicLong();
+        Iterator<MemberImportRow> rows = reader.lines()
+                .map(line -> MemberImportRow.fromCsv(lineNumber.incrementAndGet(), line))
+                .flatMap(Optional::stream)
+                .iterator();
+        return memberRepository.importMembers(rows, IMPORT_CHUNK_SIZE);
+    }
+
+    @PostMapping(value = "/members/import", consumes = {"application/json", "application/x-ndjson"})
+    public long importJson(InputStream body) {
+        // JSON 배열이나 NDJSON 모두 한 건씩 읽는다. 검사(빈 username, 음수 age)는 CSV 와 같이 importMembers 에서 한다.
+        // JSON 형식이 틀리면 파서가 멈춘 줄 번호로 400
+        try {
+            MappingIterator<MemberImportRow> rows = objectMapper.readerFor(MemberImportRow.class).readValues(body);
+            return memberRepository.importMembers(jsonRows(rows), IMPORT_CHUNK_SIZE);
+        } catch (IOException e) {
+            throw invalidJson(e);
+        }
+    }
+
+    // MappingIterator 의 hasNext/next 는 파싱 오류를 그냥 RuntimeException 으로 감싸므로 hasNextValue/nextValue 로 원래 예외를 받는다.
+    private static Iterator<MemberImportRow> jsonRows(MappingIterator<MemberImportRow> rows) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return rows.hasNextValue();
+                } catch (IOException e) {
+                    throw invalidJson(e);
+                }
+            }
+
+            @Override
+            public MemberImportRow next() {
+                try {
+                    return rows.nextValue();
+                } catch (IOException e) {
+                    throw invalidJson(e);
+                }
+            }
+        };
+    }
+
+    private static RuntimeException invalidJson(IOException e) {
+        if (e instanceof JsonProcessingException) {
+            JsonProcessingException jsonError = (JsonProcessingException) e;
+            long lineNumber = jsonError.getLocation() != null ? jsonError.getLocation().getLineNr() : 0;
+            return new MemberImportException(lineNumber, "JSON 형식이 잘못되었습니다", jsonError.getOriginalMessage());
+        }
+        return new UncheckedIOException(e);
+    }
+
+    // 클라이언트가 보낸 값이 잘못된 경우 500 이 아니라 400 으로 응답한다.
+    @ExceptionHandler({InvalidCursorException.class, MemberImportException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequest(RuntimeException e) {
+        return e.getMessage();
     }
 
 //    @PostConstruct
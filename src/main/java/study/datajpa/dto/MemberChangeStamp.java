@@ -0,0 +1,31 @@
+package study.datajpa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+//회원 목록의 변경 표시 -- 회원, 팀의 마지막 수정 시각 + 건수. 모두 같으면 목록 응답도 같다고 본다.
+//목록에 팀 이름이 있으므로 팀 이름만 바뀌어도 표시가 바뀌어야 한다. 건수는 삭제를 알아내기 위한 것
+//삭제는 수정 시각에 나타나지 않으므로 Last-Modified 가 아니라 ETag 로만 비교한다.
+@Getter
+@AllArgsConstructor
+public class MemberChangeStamp {
+
+    private final LocalDateTime memberLastModifiedDate; //회원이 없으면 null
+    private final LocalDateTime teamLastModifiedDate; //팀이 없으면 null
+    private final long count;
+
+    //같은 데이터라도 요청(페이지, 정렬 등)마다 응답이 다르므로 요청을 나타내는 문자열을 같이 넣는다.
+    public String etag(String request) {
+        String raw = memberLastModifiedDate + "|" + teamLastModifiedDate + "|" + count + "|" + request;
+        return "\"" + DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    public static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime == null ? -1 : dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
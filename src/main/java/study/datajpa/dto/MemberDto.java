@@ -1,8 +1,11 @@
 package study.datajpa.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import study.datajpa.entity.Member;
 
+import java.time.LocalDateTime;
+
 @Data
 public class MemberDto {
 
@@ -12,12 +15,28 @@ public class MemberDto {
 
     private String teamName;
 
+    @JsonIgnore
+    private LocalDateTime lastModifiedDate; //ETag, Last-Modified 계산용 (응답 본문에는 넣지 않는다)
+
+    @JsonIgnore
+    private Long changeSeq; //변경분 동기화 워터마크 계산용
+
     public MemberDto(Long id, String username, String teamName) {
         this.id = id;
         this.username = username;
         this.teamName = teamName;
     }
 
+    public MemberDto(Long id, String username, String teamName, LocalDateTime lastModifiedDate) {
+        this(id, username, teamName);
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    public MemberDto(Long id, String username, String teamName, LocalDateTime lastModifiedDate, Long changeSeq) {
+        this(id, username, teamName, lastModifiedDate);
+        this.changeSeq = changeSeq;
+    }
+
     public MemberDto(Member member) {
         this.id = member.getId();
         this.username = member.getUsername();
@@ -0,0 +1,16 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+
+//대량 등록 입력의 잘못된 줄 -- 등록 전체가 롤백되고 컨트롤러에서 400 으로 응답한다.
+//리포지토리(importMembers) 안에서 던져지므로 예외 변환 대상이 아니도록 RuntimeException 을 상속한다.
+@Getter
+public class MemberImportException extends RuntimeException {
+
+    private final long lineNumber;
+
+    public MemberImportException(long lineNumber, String message, String line) {
+        super(lineNumber + "번째 줄: " + message + " [" + line + "]");
+        this.lineNumber = lineNumber;
+    }
+}
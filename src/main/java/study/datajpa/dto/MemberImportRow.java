@@ -0,0 +1,62 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Optional;
+
+//대량 등록 한 줄 (CSV: username,age,teamName  -- teamName 은 생략 가능)
+@Data
+@NoArgsConstructor
+public class MemberImportRow {
+
+    private static final String HEADER = "username,";
+
+    private String username;
+
+    private int age;
+
+    private String teamName;
+
+    public MemberImportRow(String username, int age, String teamName) {
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+    }
+
+    //빈 줄과 첫 줄의 헤더(username,age,teamName)는 건너뛴다. 그 밖에 형식이 틀리면 줄 번호와 함께 MemberImportException
+    public static Optional<MemberImportRow> fromCsv(long lineNumber, String line) {
+        if (line.isBlank() || (lineNumber == 1 && line.trim().toLowerCase().startsWith(HEADER))) {
+            return Optional.empty();
+        }
+        String[] columns = line.split(",", -1);
+        if (columns.length < 2 || columns.length > 3) {
+            throw new MemberImportException(lineNumber, "username,age[,teamName] 형식이어야 합니다", line);
+        }
+        String username = columns[0].trim();
+        int age;
+        try {
+            age = Integer.parseInt(columns[1].trim());
+        } catch (NumberFormatException e) {
+            throw new MemberImportException(lineNumber, "age 는 숫자여야 합니다", line);
+        }
+        String teamName = columns.length > 2 && !columns[2].isBlank() ? columns[2].trim() : null;
+        MemberImportRow row = new MemberImportRow(username, age, teamName);
+        row.validate(lineNumber, line);
+        return Optional.of(row);
+    }
+
+    //형식(CSV, JSON, NDJSON)과 상관없이 저장 전에 검사한다. -- MemberRepository.importMembers 가 부른다.
+    public void validate(long lineNumber) {
+        validate(lineNumber, toString());
+    }
+
+    private void validate(long lineNumber, String line) {
+        if (username == null || username.isBlank()) {
+            throw new MemberImportException(lineNumber, "username 이 비어 있습니다", line);
+        }
+        if (age < 0) {
+            throw new MemberImportException(lineNumber, "age 는 0 이상이어야 합니다", line);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+//회원 검색 조건 -- null 이거나 빈 문자열인 조건은 쓰지 않는다.
+@Data
+public class MemberSearchCondition {
+
+    private String username;
+
+    private String teamName;
+
+    private Integer ageGoe; //나이 >= ageGoe
+
+    private Integer ageLoe; //나이 <= ageLoe
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom; //createdDate >= createdFrom
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo; //createdDate < createdTo
+}
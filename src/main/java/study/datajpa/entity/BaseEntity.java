@@ -26,6 +26,14 @@ public class BaseEntity extends BaseTimeEntity{
     @LastModifiedBy
     private String lastModifiedBy;
 
-
-
+    public void auditCreated(String auditor, LocalDateTime now) {
+        auditCreated(now);
+        this.createBy = auditor;
+        this.lastModifiedBy = auditor;
+    }
+
+    public void auditModified(String auditor, LocalDateTime now) {
+        auditModified(now);
+        this.lastModifiedBy = auditor;
+    }
 }
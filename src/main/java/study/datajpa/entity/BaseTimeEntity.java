@@ -22,4 +22,13 @@ public class BaseTimeEntity {
     @LastModifiedDate
     private LocalDateTime lastModifiedDate;
 
+    //StatelessSession 처럼 엔티티 리스너(AuditingEntityListener)를 거치지 않을 때 직접 채운다.
+    public void auditCreated(LocalDateTime now) {
+        this.createdDate = now;
+        this.lastModifiedDate = now;
+    }
+
+    public void auditModified(LocalDateTime now) {
+        this.lastModifiedDate = now;
+    }
 }
@@ -0,0 +1,20 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+//커밋 순서 번호 -- MemberChangeSequence 가 커밋 직전에 이 행을 잠그고 lastSeq 를 올린다. (JDBC 로 직접 다룬다)
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ChangeCounter {
+
+    @Id
+    private String name;
+
+    private long lastSeq;
+}
@@ -1,10 +1,29 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.repository.MemberChangeListener;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = { //회원 검색(/members/search) 조건마다 인덱스 -- columnList 는 필드(논리) 이름
+        @Index(name = "idx_member_username_id", columnList = "username, member_id"), //username 검색 + 키셋 페이징 (username, id) 순서
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_team_id", columnList = "team_id"),
+        @Index(name = "idx_member_created_date", columnList = "createdDate"),
+        @Index(name = "idx_member_last_modified", columnList = "lastModifiedDate, member_id"), //변경분 동기화, max(lastModifiedDate)
+        @Index(name = "idx_member_processed", columnList = "processedAt, member_id"), //MemberClaimRunner 의 claim 대상
+        @Index(name = "idx_member_change_seq", columnList = "changeSeq, member_id") //변경분 동기화 (MemberChangeSequence)
+})
+@EntityListeners(MemberChangeListener.class) //count 캐시 무효화
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) //2차 캐시 -- 설정은 ehcache.xml
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -15,18 +34,53 @@ import javax.persistence.*;
 )
 @NamedEntityGraph(name = "Member.all", attributeNodes =
                     @NamedAttributeNode("team"))
+@SqlResultSetMapping(name = "MemberDtoMapping", //네이티브 쿼리 결과를 프록시 없이 MemberDto 생성자로 받는다
+        classes = @ConstructorResult(targetClass = MemberDto.class, columns = {
+                @ColumnResult(name = "id", type = Long.class),
+                @ColumnResult(name = "username"),
+                @ColumnResult(name = "teamName")
+        }))
+@NamedNativeQuery(
+        name = "Member.findNativeMemberDto",
+        query = "SELECT m.member_id as id, m.username, t.name as teamName " +
+                "FROM member m left join team t ON m.team_id = t.team_id order by m.member_id",
+        resultSetMapping = "MemberDtoMapping"
+)
 public class Member extends BaseEntity{
 
-    @Id @GeneratedValue
+    //pooled-lo : 시퀀스를 한 번 호출할 때 increment_size 만큼 식별자를 미리 할당받는다. (insert 마다 시퀀스를 호출하지 않는다)
+    //increment_size, optimizer 는 spring.jpa.properties.app.id.member_seq.* 로 바꿀 수 있다. (ConfigurableSequenceGenerator)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @GenericGenerator(name = "member_seq_generator",
+            strategy = "study.datajpa.config.ConfigurableSequenceGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "member_seq"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            })
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
 
+    @Version //낙관적 락 -- update 할 때 where version = ? 로 다른 트랜잭션이 먼저 바꿨는지 확인한다.
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
 
+    //MemberClaimRunner 가 마지막으로 처리한 시각 -- 러너만 바꾸므로 다른 수정(lastModifiedDate)과 섞이지 않는다.
+    @Setter(AccessLevel.NONE)
+    private LocalDateTime processedAt;
+
+    //변경분 동기화 순서 -- 커밋 전에는 트랜잭션의 음수 표시, 커밋할 때 MemberChangeSequence 가 커밋 순서 번호로 바꾼다.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Long changeSeq;
+
 //    protected Member() {
 //    }
 
@@ -48,6 +102,14 @@ public class Member extends BaseEntity{
         this.age = age;
     }
 
+    public void markProcessed(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    public void markChanged(long pendingMarker) {
+        this.changeSeq = pendingMarker;
+    }
+
     //연관관계 세팅하는 메서드 -> 멤버는 팀을 변경할 수 있다.
     public void changeTeam(Team team) {
         this.team = team;
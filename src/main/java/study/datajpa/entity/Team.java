@@ -1,23 +1,51 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_team_name", columnList = "name"), //팀 이름으로 회원 검색할 때 팀을 먼저 찾는다
+        @Index(name = "idx_team_last_modified", columnList = "lastModifiedDate") //회원 목록 ETag 의 max(lastModifiedDate)
+})
+@BatchSize(size = 100) //member.team 프록시를 초기화할 때 아직 초기화 안 된 팀 프록시들을 in 쿼리 한 번으로 같이 가져온다
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) //2차 캐시 -- 설정은 ehcache.xml
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id","name"})
 public class Team extends BaseEntity{
 
-    @Id @GeneratedValue
+    //pooled-lo : 시퀀스를 한 번 호출할 때 increment_size 만큼 식별자를 미리 할당받는다. (insert 마다 시퀀스를 호출하지 않는다)
+    //increment_size, optimizer 는 spring.jpa.properties.app.id.team_seq.* 로 바꿀 수 있다. (ConfigurableSequenceGenerator)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @GenericGenerator(name = "team_seq_generator",
+            strategy = "study.datajpa.config.ConfigurableSequenceGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "team_seq"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            })
     @Column(name = "team_id")
     private Long id;
 
     private String name;
 
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @BatchSize(size = 100) //팀 목록을 돌면서 members 를 꺼낼 때 팀 100개의 회원을 in 쿼리 한 번으로 가져온다
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
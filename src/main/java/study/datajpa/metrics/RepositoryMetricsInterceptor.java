@@ -0,0 +1,75 @@
+package study.datajpa.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+//리포지토리 메서드 호출마다 실행된 SQL 수와 반환한 행 수를 기록한다.
+//지연시간은 스프링 부트가 spring.data.repository.invocations 로 이미 기록한다.
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    private final MeterRegistry registry;
+    private final String repository;
+    private final Map<Method, DistributionSummary> statements = new ConcurrentHashMap<>();
+    private final Map<Method, DistributionSummary> rows = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsInterceptor(MeterRegistry registry, String repository) {
+        this.registry = registry;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        long before = SqlStatementCounter.current();
+        try {
+            Object result = invocation.proceed();
+            long rowCount = rowCount(result, method.getReturnType());
+            if (rowCount >= 0) {
+                rows.computeIfAbsent(method, m -> summary("spring.data.repository.rows", m)).record(rowCount);
+            }
+            return result;
+        } finally {
+            statements.computeIfAbsent(method, m -> summary("spring.data.repository.statements", m))
+                    .record(SqlStatementCounter.current() - before);
+        }
+    }
+
+    private DistributionSummary summary(String name, Method method) {
+        return DistributionSummary.builder(name)
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .register(registry);
+    }
+
+    //행 수를 알 수 없는 반환 타입(count, 벌크 연산의 int, Stream 등)은 -1
+    private static long rowCount(Object result, Class<?> returnType) {
+        if (returnType.isPrimitive() || Number.class.isAssignableFrom(returnType) || Boolean.class == returnType) {
+            return -1;
+        }
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Iterable || result instanceof java.util.stream.BaseStream) {
+            return -1;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.metrics;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+//p6spy 가 가로챈 SQL 실행(배치는 한 번) 횟수를 스레드별로 센다.
+//리포지토리 메서드, 컨트롤러 요청 전후의 값을 비교해서 몇 개의 SQL 이 나갔는지 계산한다.
+@Component
+public class SqlStatementCounter extends SimpleJdbcEventListener {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    public static long current() {
+        return COUNT.get()[0];
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        COUNT.get()[0]++;
+    }
+}
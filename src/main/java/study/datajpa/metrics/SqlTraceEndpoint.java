@@ -0,0 +1,42 @@
+package study.datajpa.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+//SQL 로그 설정 조회/변경
+//GET  /actuator/sqltrace
+//POST /actuator/sqltrace  {"mode":"ALL"}  {"mode":"SAMPLED","sampleRate":0.1,"slowThresholdMillis":100}
+@Component
+@Endpoint(id = "sqltrace")
+@RequiredArgsConstructor
+public class SqlTraceEndpoint {
+
+    private final SqlTraceListener listener;
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        return Map.of(
+                "mode", listener.getMode(),
+                "sampleRate", listener.getSampleRate(),
+                "slowThresholdMillis", listener.getSlowThreshold().toMillis());
+    }
+
+    //넘기지 않은 값은 그대로 둔다.
+    @WriteOperation
+    public Map<String, Object> change(@Nullable SqlTraceMode mode,
+                                      @Nullable Double sampleRate,
+                                      @Nullable Long slowThresholdMillis) {
+        listener.change(
+                mode != null ? mode : listener.getMode(),
+                sampleRate != null ? sampleRate : listener.getSampleRate(),
+                slowThresholdMillis != null ? Duration.ofMillis(slowThresholdMillis) : listener.getSlowThreshold());
+        return settings();
+    }
+}
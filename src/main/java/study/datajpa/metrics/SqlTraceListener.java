@@ -0,0 +1,135 @@
+package study.datajpa.metrics;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//p6spy 기본 로거 대신 SQL 을 샘플링해서 별도 스레드에서 로그로 남긴다. (decorator.datasource.p6spy.enable-logging: false)
+//요청 스레드에서는 남길지 정하고 SQL 문자열만 버퍼에 넣는다. 로그 포맷/출력은 sql-trace 스레드가 한다.
+//버퍼가 가득 차면 버리고 sql.trace{result=dropped} 로 센다. (요청 스레드가 로그 때문에 기다리지 않는다)
+//모드, 샘플 비율, 느린 쿼리 기준은 /actuator/sqltrace 로 실행 중에 바꿀 수 있다.
+@Slf4j(topic = "study.datajpa.sql")
+@Component
+public class SqlTraceListener extends SimpleJdbcEventListener {
+
+    private volatile SqlTraceMode mode;
+    private volatile double sampleRate;
+    private volatile long slowThresholdNanos;
+
+    private final BlockingQueue<SqlTrace> buffer;
+    private final Counter logged;
+    private final Counter dropped;
+    private Thread writer;
+
+    public SqlTraceListener(MeterRegistry registry,
+                            @Value("${app.sql-trace.mode:SAMPLED}") SqlTraceMode mode,
+                            @Value("${app.sql-trace.sample-rate:0.01}") double sampleRate,
+                            @Value("${app.sql-trace.slow-threshold:200ms}") Duration slowThreshold,
+                            @Value("${app.sql-trace.buffer-size:4096}") int bufferSize) {
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.logged = registry.counter("sql.trace", "result", "logged");
+        this.dropped = registry.counter("sql.trace", "result", "dropped");
+        change(mode, sampleRate, slowThreshold);
+    }
+
+    public void change(SqlTraceMode mode, double sampleRate, Duration slowThreshold) {
+        this.mode = mode;
+        this.sampleRate = Math.max(0, Math.min(sampleRate, 1));
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    public SqlTraceMode getMode() {
+        return mode;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public Duration getSlowThreshold() {
+        return Duration.ofNanos(slowThresholdNanos);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlTraceMode current = mode;
+        if (current == SqlTraceMode.OFF) {
+            return;
+        }
+        boolean slow = timeElapsedNanos >= slowThresholdNanos;
+        if (!slow && e == null && current == SqlTraceMode.SAMPLED
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        //파라미터 값까지 넣은 SQL 은 느린/실패한 쿼리만 만든다. (문자열 조합 비용)
+        String sql = slow || e != null ? statementInformation.getSqlWithValues() : statementInformation.getSql();
+        if (!buffer.offer(new SqlTrace(sql, timeElapsedNanos, slow, e))) {
+            dropped.increment();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::drain, "sql-trace");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(1));
+    }
+
+    private void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                write(buffer.take());
+            }
+        } catch (InterruptedException e) {
+            SqlTrace remaining;
+            while ((remaining = buffer.poll()) != null) {
+                write(remaining);
+            }
+        }
+    }
+
+    private void write(SqlTrace trace) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(trace.elapsedNanos);
+        if (trace.error != null) {
+            log.warn("{}ms | {} | {}", millis, trace.error.getMessage(), trace.sql);
+        } else if (trace.slow) {
+            log.warn("slow {}ms | {}", millis, trace.sql);
+        } else {
+            log.info("{}ms | {}", millis, trace.sql);
+        }
+        logged.increment();
+    }
+
+    private static class SqlTrace {
+        private final String sql;
+        private final long elapsedNanos;
+        private final boolean slow;
+        private final SQLException error;
+
+        private SqlTrace(String sql, long elapsedNanos, boolean slow, SQLException error) {
+            this.sql = sql;
+            this.elapsedNanos = elapsedNanos;
+            this.slow = slow;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package study.datajpa.metrics;
+
+//SQL 로그 모드 -- 느린 쿼리(slow-threshold 이상)와 실패한 쿼리는 OFF 가 아니면 항상 남긴다.
+public enum SqlTraceMode {
+    OFF,      //남기지 않는다
+    SAMPLED,  //sample-rate 비율만
+    ALL       //전부
+}
@@ -0,0 +1,25 @@
+package study.datajpa.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+//BulkUpdateRunner 진행 상황 -- lastId 까지는 커밋이 끝났다.
+@Getter
+@ToString
+@AllArgsConstructor
+public class BulkProgress {
+
+    private final long lastId;
+    private final long maxId;
+    private final int chunks;
+    private final long updatedRows;
+
+    BulkProgress next(long chunkLastId, int updated) {
+        return new BulkProgress(chunkLastId, maxId, chunks + 1, updatedRows + updated);
+    }
+
+    public boolean isDone() {
+        return lastId >= maxId;
+    }
+}
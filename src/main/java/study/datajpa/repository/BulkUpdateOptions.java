@@ -0,0 +1,59 @@
+package study.datajpa.repository;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+//BulkUpdateRunner 실행 옵션
+public class BulkUpdateOptions {
+
+    private final int chunkSize;
+    private final Duration throttle;
+    private final Long resumeAfterId;
+    private final Consumer<BulkProgress> listener;
+
+    private BulkUpdateOptions(int chunkSize, Duration throttle, Long resumeAfterId, Consumer<BulkProgress> listener) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize 는 1 이상이어야 합니다: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.throttle = throttle;
+        this.resumeAfterId = resumeAfterId;
+        this.listener = listener;
+    }
+
+    //id 범위 chunkSize 개씩 나누어 각각 커밋한다.
+    public static BulkUpdateOptions chunkSize(int chunkSize) {
+        return new BulkUpdateOptions(chunkSize, Duration.ZERO, null, progress -> { });
+    }
+
+    //chunk 사이에 쉬는 시간 -- 다른 트랜잭션이 락을 잡을 틈을 준다.
+    public BulkUpdateOptions throttle(Duration throttle) {
+        return new BulkUpdateOptions(chunkSize, throttle, resumeAfterId, listener);
+    }
+
+    //중단된 작업을 이어서 실행 -- 마지막으로 보고된 BulkProgress.getLastId() 를 넘긴다.
+    public BulkUpdateOptions resumeAfter(Long lastId) {
+        return new BulkUpdateOptions(chunkSize, throttle, lastId, listener);
+    }
+
+    //chunk 가 커밋될 때마다 호출된다.
+    public BulkUpdateOptions onProgress(Consumer<BulkProgress> listener) {
+        return new BulkUpdateOptions(chunkSize, throttle, resumeAfterId, listener);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public Duration getThrottle() {
+        return throttle;
+    }
+
+    public Long getResumeAfterId() {
+        return resumeAfterId;
+    }
+
+    public Consumer<BulkProgress> getListener() {
+        return listener;
+    }
+}
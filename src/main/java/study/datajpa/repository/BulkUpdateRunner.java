@@ -0,0 +1,95 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.Map;
+
+//JPQL 벌크 update 를 id 범위로 잘라서 chunk 마다 커밋한다.
+//update 한 번으로 테이블 전체에 락을 오래 잡지 않고, 중간에 멈춰도 마지막 커밋 위치부터 이어서 실행할 수 있다.
+//회원 chunk 의 커밋은 change_counter 행을 잠그므로 그동안 다른 회원 쓰기의 커밋이 기다린다. (MemberChangeSequence)
+@Component
+@RequiredArgsConstructor
+public class BulkUpdateRunner {
+
+    private final EntityManager em;
+    private final PlatformTransactionManager transactionManager;
+    private final MemberChangeSequence changeSequence;
+    private final MemberNearCache nearCache;
+
+    //MemberRepository.bulkAgePlus 를 chunk 로 나누어 실행
+    public BulkProgress bulkAgePlus(int age, BulkUpdateOptions options) {
+        return run("Member",
+                "update Member m set m.age = m.age + 1, m.version = m.version + 1, m.lastModifiedDate = CURRENT_TIMESTAMP," +
+                        " m.changeSeq = :changeSeq" +
+                        " where m.age >= :age and m.id between :fromId and :toId",
+                Map.of("age", age),
+                options);
+    }
+
+    //updateJpql 은 :fromId, :toId 로 id 범위를 제한해야 한다.
+    //:changeSeq 가 있으면 chunk 트랜잭션의 변경분 동기화 표시를 넣는다. (MemberChangeSequence)
+    //시작 시점의 max(id) 까지만 처리한다. (실행 중에 추가된 행은 대상이 아니다)
+    public BulkProgress run(String entityName, String updateJpql, Map<String, ?> params, BulkUpdateOptions options) {
+        Object[] range = em.createQuery("select min(e.id), max(e.id) from " + entityName + " e", Object[].class)
+                .getSingleResult();
+        if (range[0] == null) {
+            return new BulkProgress(0, 0, 0, 0);
+        }
+        long minId = ((Number) range[0]).longValue();
+        long maxId = ((Number) range[1]).longValue();
+        long fromId = options.getResumeAfterId() != null ? options.getResumeAfterId() + 1 : minId;
+
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        BulkProgress progress = new BulkProgress(fromId - 1, maxId, 0, 0);
+        while (fromId <= maxId) {
+            long from = fromId;
+            long to = Math.min(fromId + options.getChunkSize() - 1, maxId);
+            Integer updated = chunkTransaction.execute(status -> {
+                Query query = em.createQuery(updateJpql);
+                params.forEach(query::setParameter);
+                if (query.getParameters().stream().anyMatch(p -> "changeSeq".equals(p.getName()))) {
+                    query.setParameter("changeSeq", changeSequence.pendingMarker());
+                }
+                int count = query
+                        .setParameter("fromId", from)
+                        .setParameter("toId", to)
+                        .executeUpdate();
+                //엔티티 리스너를 거치지 않으므로 chunk 마다 near 캐시를 비운다. (팀 이름도 회원 단건 응답에 들어간다)
+                nearCache.invalidateAllNowAndAfterCompletion();
+                return count;
+            });
+            progress = progress.next(to, updated == null ? 0 : updated);
+            options.getListener().accept(progress);
+
+            fromId = to + 1;
+            if (fromId <= maxId && !sleep(options)) {
+                break; //인터럽트 -- 여기까지의 progress 로 resumeAfter 해서 이어서 실행한다.
+            }
+        }
+
+        //@Modifying(clearAutomatically = true) 처럼 호출한 쪽 영속성 컨텍스트의 오래된 엔티티를 비운다.
+        em.clear();
+        return progress;
+    }
+
+    private static boolean sleep(BulkUpdateOptions options) {
+        if (options.getThrottle().isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(options.getThrottle().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.datajpa.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+//변경분 동기화 결과 -- KeysetSlice 와 달리 다음 워터마크가 항상 있다.
+//더 가져올 게 없어도 마지막으로 받은 위치(없으면 요청한 워터마크)를 돌려주고, 클라이언트는 다음 동기화 때 그대로 넘긴다.
+@Getter
+@AllArgsConstructor
+public class ChangeSlice<T> {
+
+    private final List<T> content;
+    private final String nextWatermark;
+    private final boolean hasMore;
+
+    //size + 1 개를 조회한 결과로 만든다. 한 건이 더 있으면 바로 이어서 요청하면 된다.
+    public static <T> ChangeSlice<T> of(List<T> fetched, int size, String since, Function<T, KeysetCursor> cursorOf) {
+        boolean hasMore = fetched.size() > size;
+        List<T> content = hasMore ? fetched.subList(0, size) : fetched;
+        String next = content.isEmpty() ? since : cursorOf.apply(content.get(content.size() - 1)).encode();
+        return new ChangeSlice<>(content, next, hasMore);
+    }
+}
@@ -0,0 +1,10 @@
+package study.datajpa.repository;
+
+//디코딩할 수 없거나 정렬 기준과 맞지 않는 커서 -- 클라이언트가 잘못 보낸 값이므로 컨트롤러에서 400 으로 응답한다.
+//IllegalArgumentException 이면 리포지토리 프록시가 InvalidDataAccessApiUsageException 으로 바꿔 버리므로 RuntimeException 을 상속한다.
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor, Throwable cause) {
+        super("잘못된 커서입니다: " + cursor, cause);
+    }
+}
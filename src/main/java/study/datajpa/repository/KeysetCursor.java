@@ -0,0 +1,59 @@
+package study.datajpa.repository;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//키셋(seek) 페이징에서 마지막으로 읽은 행의 위치
+//클라이언트에는 "id|key" 를 Base64(URL-safe)로 감싼 불투명한 토큰으로만 전달한다.
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class KeysetCursor {
+
+    private final String key;
+    private final Long id;
+
+    public static KeysetCursor of(String key, Long id) {
+        return new KeysetCursor(key, id);
+    }
+
+    public static KeysetCursor of(Long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            Long id = Long.valueOf(parts[0]);
+            return new KeysetCursor(parts.length > 1 ? parts[1] : null, id);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(token, e);
+        }
+    }
+
+    //키 정렬(username 등) 커서인데 키가 없으면 잘못된 커서
+    public String requireKey(String token) {
+        if (key == null) {
+            throw new InvalidCursorException(token, null);
+        }
+        return key;
+    }
+
+    //숫자 키(change_seq 등) 커서
+    public long requireLongKey(String token) {
+        try {
+            return Long.parseLong(requireKey(token));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(token, e);
+        }
+    }
+
+    public String encode() {
+        String raw = key == null ? String.valueOf(id) : id + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,35 @@
+package study.datajpa.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//키셋 페이징 결과 -- Slice 처럼 전체 카운트 없이 다음 페이지 여부와 다음 커서만 가진다.
+@Getter
+@AllArgsConstructor
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    //size + 1 개를 조회한 결과로 만든다. 한 건이 더 있으면 다음 페이지가 있는 것
+    public static <T> KeysetSlice<T> of(List<T> fetched, int size, Function<T, KeysetCursor> cursorOf) {
+        if (fetched.size() <= size) {
+            return new KeysetSlice<>(fetched, null);
+        }
+        List<T> content = fetched.subList(0, size);
+        return new KeysetSlice<>(content, cursorOf.apply(content.get(size - 1)).encode());
+    }
+
+    public <U> KeysetSlice<U> map(Function<? super T, ? extends U> converter) {
+        List<U> converted = content.stream().map(converter).collect(Collectors.toList());
+        return new KeysetSlice<>(converted, nextCursor);
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
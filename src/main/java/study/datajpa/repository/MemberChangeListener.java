@@ -0,0 +1,46 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.Member;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+//회원 엔티티 변경 시 캐시 무효화 (하이버네이트가 스프링 빈으로 엔티티 리스너를 가져온다)
+//JPQL 벌크 연산은 엔티티 리스너를 거치지 않는다. (변경분 동기화 표시는 update 문에 직접 넣는다)
+@Component
+@RequiredArgsConstructor
+public class MemberChangeListener {
+
+    private final MemberCountCache countCache;
+    private final MemberNearCache nearCache;
+    private final MemberChangeSequence changeSequence;
+
+    //flush 전에 부르므로 insert/update 에 change_seq 가 같이 나간다.
+    @PrePersist
+    @PreUpdate
+    public void onWrite(Member member) {
+        member.markChanged(changeSequence.pendingMarker());
+    }
+
+    @PostPersist
+    public void onInsert(Member member) {
+        countCache.invalidateNowAndAfterCompletion();
+        nearCache.evictAbsent(member.getId()); //저장 전에 없는 id 로 캐시된 것만 비운다
+    }
+
+    @PostRemove
+    public void onDelete(Member member) {
+        countCache.invalidateNowAndAfterCompletion();
+        nearCache.evict(member.getId());
+    }
+
+    @PostUpdate
+    public void onUpdate(Member member) {
+        nearCache.evict(member.getId());
+    }
+}
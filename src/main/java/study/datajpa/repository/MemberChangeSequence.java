@@ -0,0 +1,124 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+//변경분 동기화(/members/changes)의 커밋 순서 번호 (member.change_seq)
+//회원을 바꾸는 트랜잭션은 먼저 자기만의 음수 표시(pendingMarker)를 change_seq 에 쓰고,
+//커밋 직전에 change_counter 행을 잠가서 번호를 하나 올린 뒤 자기 표시를 그 번호로 바꾼다.
+//행 잠금은 커밋까지 유지되므로 번호가 큰 트랜잭션은 번호가 작은 트랜잭션이 커밋된 뒤에만 번호를 받는다.
+//-> 읽는 쪽은 change_seq > 워터마크 만 보면 되고, 커밋이 늦은 트랜잭션을 건너뛰지 않는다. (시계도, 지연 시간도 쓰지 않는다)
+//대신 회원을 바꾸는 모든 커밋(엔티티 수정, 벌크 update, stateless, MemberClaimRunner 워커, BulkUpdateRunner chunk)이
+//change_counter 한 행에서 한 줄로 선다. -- 커밋 직전 ~ 커밋 사이만 잠그지만 쓰기 동시성이 높으면 처리량의 상한이 된다.
+//비용은 LockContentionBenchmark 의 changeFeed 파라미터로 잰다.
+//변경분 동기화를 쓰지 않는 인스턴스는 app.change-feed.enabled=false 로 끈다. (표시 대신 0 을 쓰고 카운터를 잠그지 않는다)
+@Component
+public class MemberChangeSequence {
+
+    private static final String COUNTER = "member";
+
+    //엔티티 리스너(MemberChangeListener)가 엔티티 매니저 팩토리를 만드는 중에 생성되므로 엔티티 매니저는 커밋할 때 가져온다.
+    private final ObjectProvider<EntityManager> entityManager;
+    private final boolean enabled;
+
+    public MemberChangeSequence(ObjectProvider<EntityManager> entityManager,
+                                @Value("${app.change-feed.enabled:true}") boolean enabled) {
+        this.entityManager = entityManager;
+        this.enabled = enabled;
+    }
+
+    //현재 트랜잭션의 표시 -- 처음 부를 때 표시를 리소스로 묶고 커밋 직전에 번호로 바꾸는 동기화를 등록한다.
+    //JPQL 벌크 update 는 파라미터로 넣는다. (MemberRepositoryImpl.bulkAgePlus, BulkUpdateRunner)
+    //꺼져 있으면 0 -- 바뀐 회원은 변경분 조회(change_seq > 워터마크)에 나오지 않는다.
+    public long pendingMarker() {
+        if (!enabled) {
+            return 0;
+        }
+        Long marker = (Long) TransactionSynchronizationManager.getResource(this);
+        if (marker != null) {
+            return marker;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("회원 변경은 트랜잭션 안에서만 할 수 있습니다.");
+        }
+        long newMarker = ThreadLocalRandom.current().nextLong(Long.MIN_VALUE, 0); //동시에 열린 트랜잭션끼리 겹치지 않는 음수
+        TransactionSynchronizationManager.bindResource(this, newMarker);
+        TransactionSynchronizationManager.registerSynchronization(new Stamp(newMarker));
+        return newMarker;
+    }
+
+    //stateless 세션, 벌크 update 로 쓴 행도 같은 커넥션이므로 함께 바뀐다.
+    //JDBC 로 직접 바꾸므로 하이버네이트가 Member 2차 캐시 region 을 비우지 않는다. (엔티티의 changeSeq 는 읽지 않는다)
+    private static void stamp(Connection connection, long marker) throws SQLException {
+        long seq = nextSeq(connection);
+        try (PreparedStatement ps = connection.prepareStatement("update member set change_seq = ? where change_seq = ?")) {
+            ps.setLong(1, seq);
+            ps.setLong(2, marker);
+            ps.executeUpdate();
+        }
+    }
+
+    //update 가 change_counter 행을 잠근다. 처음 한 번은 행이 없으므로 만든다.
+    private static long nextSeq(Connection connection) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("update change_counter set last_seq = last_seq + 1 where name = ?")) {
+            update.setString(1, COUNTER);
+            if (update.executeUpdate() == 0) {
+                try (PreparedStatement insert = connection.prepareStatement("insert into change_counter (name, last_seq) values (?, 1)")) {
+                    insert.setString(1, COUNTER);
+                    insert.executeUpdate();
+                }
+                return 1;
+            }
+        }
+        try (PreparedStatement select = connection.prepareStatement("select last_seq from change_counter where name = ?")) {
+            select.setString(1, COUNTER);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    //REQUIRES_NEW 로 트랜잭션이 보류되면 표시도 같이 풀었다가 다시 묶는다.
+    private class Stamp implements TransactionSynchronization {
+        private final long marker;
+
+        private Stamp(long marker) {
+            this.marker = marker;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(MemberChangeSequence.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(MemberChangeSequence.this, marker);
+        }
+
+        //아직 flush 하지 않은 변경도 표시를 달고 나가도록 먼저 flush 한다.
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            Session session = entityManager.getObject().unwrap(Session.class);
+            session.flush();
+            session.doWork(connection -> stamp(connection, marker));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberChangeSequence.this);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package study.datajpa.repository;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+//회원을 병렬 워커로 처리한다.
+//워커마다 claimNext(for update skip locked) -> processor -> 커밋을 반복하므로 다른 워커가 잡은 회원을 기다리지 않고 다음 회원을 가져간다.
+//처리한 회원은 processedAt 이 cutoff 이후가 되므로 다시 claim 되지 않는다.
+//워커의 커밋마다 변경분 동기화 번호를 받으므로 커밋은 change_counter 행에서 한 줄로 선다. (MemberChangeSequence)
+@Component
+public class MemberClaimRunner {
+
+    private final MemberRepository memberRepository;
+    private final DateTimeProvider dateTimeProvider;
+    private final TransactionTemplate batchTransaction;
+
+    public MemberClaimRunner(MemberRepository memberRepository,
+                             DateTimeProvider dateTimeProvider,
+                             PlatformTransactionManager transactionManager) {
+        this.memberRepository = memberRepository;
+        this.dateTimeProvider = dateTimeProvider;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    //claim 할 회원이 없을 때까지 실행하고 처리한 회원 수를 반환한다.
+    public long run(int workers, int batchSize, LocalDateTime cutoff, Consumer<Member> processor) {
+        return run(workers, batchSize, cutoff, 1L, Long.MAX_VALUE, processor);
+    }
+
+    //fromId ~ toId 범위의 회원만 처리한다. (범위를 나누어 여러 러너로 실행할 수 있다)
+    public long run(int workers, int batchSize, LocalDateTime cutoff, long fromId, long toId, Consumer<Member> processor) {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> work(batchSize, cutoff, fromId, toId, processor)));
+            }
+            long processed = 0;
+            for (Future<Long> future : futures) {
+                processed += future.get();
+            }
+            return processed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("회원 처리 워커 대기 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long work(int batchSize, LocalDateTime cutoff, long fromId, long toId, Consumer<Member> processor) {
+        long processed = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            Integer claimed;
+            try {
+                claimed = batchTransaction.execute(status -> {
+                    List<Member> batch = memberRepository.claimNext(batchSize, cutoff, fromId, toId);
+                    LocalDateTime now = dateTimeProvider.getNow().map(LocalDateTime::from).orElseGet(LocalDateTime::now);
+                    for (Member member : batch) {
+                        processor.accept(member);
+                        member.markProcessed(now); //processor 가 아무것도 바꾸지 않아도 처리 표시는 남긴다
+                    }
+                    return batch.size();
+                });
+            } catch (OptimisticLockingFailureException e) {
+                //skip locked 가 없는 DB(H2)에서 다른 워커가 먼저 처리한 회원을 읽은 경우 -- 이 배치는 버리고 다시 claim
+                continue;
+            }
+            if (claimed == null || claimed == 0) {
+                break;
+            }
+            processed += claimed;
+        }
+        return processed;
+    }
+}
@@ -0,0 +1,93 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+//count 쿼리 결과 캐시 -- MemberChangeListener 가 회원 저장/삭제 시 비운다.
+@Component
+public class MemberCountCache {
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong(); //count 하는 동안 비워졌으면 결과를 캐시하지 않는다
+    private final long ttlNanos;
+
+    public MemberCountCache(@Value("${app.paging.count-cache-ttl:30s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public long get(String key, LongSupplier counter) {
+        CachedCount cached = counts.get(key);
+        if (cached != null && System.nanoTime() - cached.loadedAt < ttlNanos) {
+            return cached.count;
+        }
+        return refresh(key, counter);
+    }
+
+    public long refresh(String key, LongSupplier counter) {
+        long invalidationsBefore = invalidations.get();
+        long count = counter.getAsLong();
+        synchronized (counts) {
+            if (invalidations.get() == invalidationsBefore) {
+                counts.put(key, new CachedCount(count, System.nanoTime()));
+            }
+        }
+        return count;
+    }
+
+    public void invalidate() {
+        synchronized (counts) {
+            invalidations.incrementAndGet();
+            counts.clear();
+        }
+    }
+
+    //지금 비우고, 트랜잭션 안이면 커밋(롤백) 후에 한 번 더 비운다.
+    //flush 후 커밋 전에 count 하면 커밋 전 건수(롤백되면 없던 건수)가 다시 캐시될 수 있다. -- MemberNearCache.evict 와 같다
+    //동기화는 트랜잭션마다 한 번만 등록한다.
+    public void invalidateNowAndAfterCompletion() {
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.getResource(this) == null) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new PendingInvalidation());
+        }
+    }
+
+    //REQUIRES_NEW 로 트랜잭션이 보류되면 표시도 같이 풀었다가 다시 묶는다.
+    private class PendingInvalidation implements TransactionSynchronization {
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(MemberCountCache.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(MemberCountCache.this, Boolean.TRUE);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+            invalidate();
+        }
+    }
+
+    private static class CachedCount {
+        private final long count;
+        private final long loadedAt;
+
+        private CachedCount(long count, long loadedAt) {
+            this.count = count;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package study.datajpa.repository;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import study.datajpa.entity.Member;
 
@@ -14,6 +15,12 @@ public class MemberJpaRepository {
     @PersistenceContext
     private EntityManager em;
 
+    @Autowired
+    private MemberChangeSequence changeSequence;
+
+    @Autowired
+    private MemberNearCache nearCache;
+
     public Member save(Member member) {
         em.persist(member);
         return member;
@@ -70,9 +77,13 @@ public class MemberJpaRepository {
     }
 
     public int bulkAgePlus(int age) {
-        return em.createQuery("update Member m set m.age = m.age + 1 where m.age >= :age")
+        int updated = em.createQuery("update Member m set m.age = m.age + 1, m.version = m.version + 1, m.lastModifiedDate = CURRENT_TIMESTAMP," +
+                        " m.changeSeq = :changeSeq where m.age >= :age")
                 .setParameter("age",age)
+                .setParameter("changeSeq", changeSequence.pendingMarker())
                 .executeUpdate();
+        nearCache.invalidateAllNowAndAfterCompletion(); //벌크 update 는 엔티티 리스너를 거치지 않는다
+        return updated;
     }
 
 
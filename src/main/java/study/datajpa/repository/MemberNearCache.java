@@ -0,0 +1,190 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.dto.MemberDto;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//회원 단건 조회(/members/{id}, /members2/{id}) 앞의 로컬 캐시 -- 크기 제한(LRU) + TTL
+//없는 id 도 짧은 TTL 로 캐시한다. (없는 id 를 계속 조회해도 DB 에 가지 않는다)
+//MemberChangeListener 가 회원 저장/수정/삭제 시 비운다.
+//리스너를 거치지 않는 벌크 연산(bulkAgePlus, deleteAllInBatch, BulkUpdateRunner)은 invalidateAllNowAndAfterCompletion 으로 전체를 비운다.
+@Component
+public class MemberNearCache {
+
+    private final Map<Long, Entry> entries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final AtomicLong evictions = new AtomicLong(); //조회 중에 무효화되면 조회 결과를 캐시하지 않는다
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+
+    public MemberNearCache(MeterRegistry registry,
+                           @Value("${app.near-cache.max-size:10000}") int maxSize,
+                           @Value("${app.near-cache.ttl:30s}") Duration ttl,
+                           @Value("${app.near-cache.negative-ttl:5s}") Duration negativeTtl) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.hits = registry.counter("member.near.cache", "result", "hit");
+        this.negativeHits = registry.counter("member.near.cache", "result", "negative_hit");
+        this.misses = registry.counter("member.near.cache", "result", "miss");
+        Gauge.builder("member.near.cache.size", this, MemberNearCache::size).register(registry);
+        Gauge.builder("member.near.cache.hit.ratio", this, MemberNearCache::hitRatio).register(registry);
+    }
+
+    public Optional<MemberDto> get(Long id, Supplier<Optional<MemberDto>> loader) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(id);
+        }
+        if (entry != null && System.nanoTime() < entry.expiresAt) {
+            (entry.member == null ? negativeHits : hits).increment();
+            return Optional.ofNullable(entry.member);
+        }
+
+        misses.increment();
+        long evictionsBefore = evictions.get();
+        Optional<MemberDto> loaded = loader.get();
+        long ttl = loaded.isPresent() ? ttlNanos : negativeTtlNanos;
+        synchronized (entries) {
+            if (evictions.get() == evictionsBefore) {
+                entries.put(id, new Entry(loaded.orElse(null), System.nanoTime() + ttl));
+            }
+        }
+        return loaded;
+    }
+
+    //지금 비우고, 트랜잭션 안이면 커밋 후에 한 번 더 비운다. (커밋 전에 다른 요청이 이전 값을 다시 캐시할 수 있다)
+    //커밋 후에 비울 id 는 트랜잭션마다 하나의 TransactionSynchronization 에 모은다.
+    public void evict(Long id) {
+        remove(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingEvictions().add(id);
+        }
+    }
+
+    //새로 저장한 id 는 "없는 회원" 캐시만 있을 수 있으므로 그것만 지금 비운다.
+    //커밋 후에 다시 비우지 않고 evictions 도 올리지 않는다. (대량 저장 중에도 다른 id 의 조회 결과는 계속 캐시한다)
+    public void evictAbsent(Long id) {
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.member == null) {
+                entries.remove(id);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            evictions.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    //지금 비우고, 트랜잭션 안이면 커밋(롤백) 후에 한 번 더 비운다. -- 어떤 id 가 바뀌었는지 모르는 벌크 연산용
+    public void invalidateAllNowAndAfterCompletion() {
+        invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    private void remove(Long id) {
+        synchronized (entries) {
+            evictions.incrementAndGet();
+            entries.remove(id);
+        }
+    }
+
+    private void removeAll(Set<Long> ids) {
+        synchronized (entries) {
+            evictions.incrementAndGet();
+            entries.keySet().removeAll(ids);
+        }
+    }
+
+    //현재 트랜잭션에 묶인 id 집합 -- 처음 부를 때 집합을 리소스로 묶고 동기화를 한 번만 등록한다.
+    @SuppressWarnings("unchecked")
+    private Set<Long> pendingEvictions() {
+        Set<Long> ids = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (ids == null) {
+            Set<Long> newIds = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, newIds);
+            TransactionSynchronizationManager.registerSynchronization(new PendingEvictions(newIds));
+            ids = newIds;
+        }
+        return ids;
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double hit = hits.count() + negativeHits.count();
+        double total = hit + misses.count();
+        return total == 0 ? 0 : hit / total;
+    }
+
+    //REQUIRES_NEW 로 트랜잭션이 보류되면 id 집합도 같이 풀었다가 다시 묶는다.
+    private class PendingEvictions implements TransactionSynchronization {
+        private final Set<Long> ids;
+
+        private PendingEvictions(Set<Long> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(MemberNearCache.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(MemberNearCache.this, ids);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberNearCache.this);
+            removeAll(ids);
+        }
+    }
+
+    private static class Entry {
+        private final MemberDto member; //null 이면 없는 회원
+        private final long expiresAt;
+
+        private Entry(MemberDto member, long expiresAt) {
+            this.member = member;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
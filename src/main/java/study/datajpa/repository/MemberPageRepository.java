@@ -0,0 +1,123 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import study.datajpa.dto.MemberChangeStamp;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+//Page 조회 + count 전략
+//내용은 MemberRepository 의 List 메서드로 조회하고, 전체 카운트만 PageCountStrategy 에 따라 구한다.
+//PageableExecutionUtils 는 첫 페이지/마지막 페이지에서 count 가 필요없으면 아예 호출하지 않는다.
+@Repository
+public class MemberPageRepository {
+
+    private static final String MEMBER_COUNT = "member";
+
+    private final MemberRepository memberRepository;
+    private final TeamRepository teamRepository;
+    private final MemberCountCache countCache;
+    private final EntityManager em;
+    private final Executor countExecutor;
+    private final boolean parallelCount;
+
+    public MemberPageRepository(MemberRepository memberRepository,
+                                TeamRepository teamRepository,
+                                MemberCountCache countCache,
+                                EntityManager em,
+                                @Qualifier("pageCountExecutor") Executor countExecutor,
+                                @Value("${app.paging.parallel-count:false}") boolean parallelCount) {
+        this.memberRepository = memberRepository;
+        this.teamRepository = teamRepository;
+        this.countCache = countCache;
+        this.em = em;
+        this.countExecutor = countExecutor;
+        this.parallelCount = parallelCount;
+    }
+
+    public Page<Member> findAll(Pageable pageable, PageCountStrategy countStrategy) {
+        return page(() -> memberRepository.findAllBy(pageable), pageable, memberCount(pageable, countStrategy));
+    }
+
+    public Page<MemberDto> findMemberDto(Pageable pageable, PageCountStrategy countStrategy) {
+        return page(() -> memberRepository.findMemberDtoContent(pageable), pageable, memberCount(pageable, countStrategy));
+    }
+
+    public Page<Member> findPageByAge(int age, Pageable pageable, PageCountStrategy countStrategy) {
+        return page(() -> memberRepository.findPageContentByAge(age, pageable), pageable, memberCount(pageable, countStrategy));
+    }
+
+    public Page<MemberProjection> findByNativeProjection(Pageable pageable, PageCountStrategy countStrategy) {
+        return page(() -> memberRepository.findListByNativeProjection(pageable), pageable, memberCount(pageable, countStrategy));
+    }
+
+    //findMemberDto 응답의 변경 표시 -- 수정 시각은 인덱스로 바로 읽고, 건수는 count 전략과 상관없이 MemberCountCache 에서 읽는다.
+    //회원 insert/delete 는 캐시를 비우므로 폴링마다 전체 count 를 하지 않아도 삭제가 표시에 반영된다.
+    //(deleteAllInBatch 도 직접 비운다. 그 밖에 리스너를 거치지 않는 벌크 delete 는 count-cache-ttl 이 지나야 반영된다)
+    public MemberChangeStamp findChangeStamp() {
+        return new MemberChangeStamp(memberRepository.findLastModifiedDate(),
+                teamRepository.findLastModifiedDate(),
+                countCache.get(MEMBER_COUNT, memberRepository::count));
+    }
+
+    //parallelCount 면 count 를 count 전용 풀의 스레드(다른 커넥션)에서 실행한다.
+    //PageableExecutionUtils 가 count 를 부를 때만 제출한다. -- 첫 페이지/마지막 페이지처럼 count 가 필요 없으면 풀도 커넥션도 쓰지 않는다.
+    //count 는 별도 트랜잭션이므로 호출한 트랜잭션에서 아직 커밋하지 않은 변경은 보이지 않는다.
+    private <T> Page<T> page(Supplier<List<T>> content, Pageable pageable, LongSupplier total) {
+        if (!parallelCount || pageable.isUnpaged()) {
+            return PageableExecutionUtils.getPage(content.get(), pageable, total);
+        }
+        return PageableExecutionUtils.getPage(content.get(), pageable,
+                () -> join(CompletableFuture.supplyAsync(total::getAsLong, countExecutor)));
+    }
+
+    private static long join(CompletableFuture<Long> count) {
+        try {
+            return count.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    //모든 쿼리가 조건 없는 member 전체 count 를 쓴다.
+    private LongSupplier memberCount(Pageable pageable, PageCountStrategy countStrategy) {
+        switch (countStrategy) {
+            case CACHED:
+                return () -> countCache.get(MEMBER_COUNT, memberRepository::count);
+            case FIRST_PAGE_ONLY:
+                return () -> pageable.getPageNumber() == 0
+                        ? countCache.refresh(MEMBER_COUNT, memberRepository::count)
+                        : countCache.get(MEMBER_COUNT, memberRepository::count);
+            case ESTIMATED:
+                return this::estimatedMemberCount;
+            default:
+                return memberRepository::count;
+        }
+    }
+
+    //H2 의 통계 기반 추정 행 수 (PostgreSQL 은 pg_class.reltuples, MySQL 은 information_schema.tables.table_rows)
+    private long estimatedMemberCount() {
+        List<?> result = em.createNativeQuery("select ROW_COUNT_ESTIMATE from INFORMATION_SCHEMA.TABLES" +
+                        " where TABLE_SCHEMA = CURRENT_SCHEMA and TABLE_NAME = 'MEMBER'")
+                .getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return memberRepository.count();
+        }
+        return ((Number) result.get(0)).longValue();
+    }
+}
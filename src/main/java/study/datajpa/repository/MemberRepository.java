@@ -1,15 +1,18 @@
 package study.datajpa.repository;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,12 +32,21 @@ public interface MemberRepository extends JpaRepository<Member,Long>, MemberRepo
     @Query("select m from Member m where m.username = :username and m.age = :age")
     List<Member> findUser(@Param("username") String username, @Param("age") int age);
 
+    //쿼리 캐시 -- 같은 쿼리, 같은 파라미터면 DB에 가지 않는다.
+    //member 테이블에 insert/update/delete(벌크 연산 포함)가 커밋되면 update timestamps 로 자동 무효화된다.
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("select m.username from Member m")
     List<String> findUsernameList();
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t") //DTO로 조회할때는 new operation을 사용한다. 경로를 다 써야하는 번거로움이 있다.
     List<MemberDto> findMemberDto();
 
+    //단건 DTO -- MemberNearCache 에 넣는 값 (엔티티를 캐시하지 않는다)
+    @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name, m.lastModifiedDate) from Member m left join m.team t where m.id = :id")
+    Optional<MemberDto> findMemberDtoById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("select m from Member m where m.username in :names")  //in 절
     List<Member> findByNames(@Param("names") List<String> names);
 
@@ -51,10 +63,21 @@ public interface MemberRepository extends JpaRepository<Member,Long>, MemberRepo
 
     Slice<Member> findSliceByAge(int age, Pageable pageable);
 
-    @Modifying(clearAutomatically = true)
-    // @Modifying 이 있어야 .executeUpdate();를 호출한다 == clearAutomatically 을 넣으면 업데이트쿼리가 나간후에 엔티티메니져를 플러쉬,클리어한다.
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
-    int bulkAgePlus(@Param("age") int age);
+    //count 쿼리 없이 내용만 조회 -- 전체 카운트는 MemberPageRepository 가 PageCountStrategy 에 따라 구한다.
+    List<Member> findAllBy(Pageable pageable);
+
+    @Query("select m from Member m left join m.team t")
+    List<Member> findPageContentByAge(int age, Pageable pageable);
+
+    //GET /members 의 ETag -- idx_member_last_modified 의 끝만 읽는다. (MemberPageRepository.findChangeStamp)
+    @Query("select max(m.lastModifiedDate) from Member m")
+    LocalDateTime findLastModifiedDate();
+
+    //내용만 -- count 는 MemberPageRepository 가 PageCountStrategy 에 따라 구한다.
+    @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m left join m.team t")
+    List<MemberDto> findMemberDtoContent(Pageable pageable);
+
+    //벌크 update(bulkAgePlus)는 near 캐시를 같이 비워야 하므로 MemberRepositoryImpl 에 있다.
 
     @Query("select m from Member m left join fetch m.team")
     List<Member> findMemberFetchJoin();
@@ -87,9 +110,33 @@ public interface MemberRepository extends JpaRepository<Member,Long>, MemberRepo
 
     //JPA lock
     //select 쿼리를 돌릴때 lock 을 잡기위해 for update 를 붙인다
+    //같은 회원을 바꾸는 트랜잭션이 모두 줄을 서게 된다 -- 충돌이 드물면 @Version + OptimisticRetryTemplate 을 쓴다
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     List<Member> findLockByUsername(String name);
 
+    //작업 가져가기(claim) -- 다른 트랜잭션이 이미 잠근 회원은 기다리지 않고 건너뛴다. (for update skip locked)
+    //lock.timeout = -2 는 하이버네이트 LockOptions.SKIP_LOCKED, 방언이 skip locked 를 지원하면 붙는다. (PostgreSQL, MySQL 8, Oracle)
+    //H2Dialect 는 지원하지 않아 for update 로 나간다 -- 로컬에서는 워커들이 서로 기다린다.
+    //잠금 조회는 트랜잭션이 없으면 TransactionRequiredException 이 난다 -- 트랜잭션 밖에서 부르면 조회만 하고 잠금은 바로 풀린다.
+    //잠근 채로 처리하려면 MemberClaimRunner 처럼 호출하는 쪽 트랜잭션 안에서 부른다.
+    @Transactional
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select m from Member m" +
+            " where (m.processedAt is null or m.processedAt < :cutoff)" +
+            " and m.id between :fromId and :toId" +
+            " order by m.id")
+    List<Member> findClaimable(@Param("cutoff") LocalDateTime cutoff,
+                               @Param("fromId") long fromId,
+                               @Param("toId") long toId,
+                               Pageable pageable);
+
+    //id 범위에서 cutoff 이후로 처리되지 않은 회원 중 잠기지 않은 size 명 -- markProcessed 하면 다음 claim 대상에서 빠진다.
+    @Transactional
+    default List<Member> claimNext(int size, LocalDateTime cutoff, long fromId, long toId) {
+        return findClaimable(cutoff, fromId, toId, PageRequest.of(0, size));
+    }
+
 
 
     //Projections
@@ -101,6 +148,10 @@ public interface MemberRepository extends JpaRepository<Member,Long>, MemberRepo
 
     List<UsernameOnlyDto> findProjectionsDtoByUsername(@Param("username") String username);
 
+    //열린 프로젝션(UsernameOnly)은 엔티티 전체를 조회하고 행마다 프록시에서 SpEL 을 평가한다 -- 필요한 컬럼만 생성자로 받는다.
+    @Query("select new study.datajpa.repository.UsernameAgeDto(m.username, m.age) from Member m where m.username = :username")
+    List<UsernameAgeDto> findUsernameAgeByUsername(@Param("username") String username);
+
 
     //nativeQuery
 
@@ -114,4 +165,9 @@ public interface MemberRepository extends JpaRepository<Member,Long>, MemberRepo
             nativeQuery = true)
     Page<MemberProjection> findByNativeProjection(Pageable pageable);
 
+    @Query(value = "SELECT m.member_id as id, m.username, t.name as teamName " +
+            "FROM member m left join team t ON m.team_id = t.team_id",
+            nativeQuery = true)
+    List<MemberProjection> findListByNativeProjection(Pageable pageable);
+
 }
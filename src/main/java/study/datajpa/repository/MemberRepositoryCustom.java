@@ -1,10 +1,57 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Pageable;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberImportRow;
+import study.datajpa.entity.BaseEntity;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberRepositoryCustom {
 
     List<Member> findMemberCustom();
+
+    //키셋(seek) 페이징 -- offset 없이 마지막으로 읽은 (username, id) 다음부터 조회하므로 몇 번째 페이지든 비용이 같다.
+    KeysetSlice<Member> findKeysetByUsername(String cursor, int size);
+
+    //키셋(seek) 페이징 -- id 순서
+    KeysetSlice<Member> findKeysetById(String cursor, int size);
+
+    //변경분 동기화 -- watermark(changeSeq, id) 이후에 커밋된 회원만 커밋 순서(change_seq)대로 조회한다.
+    //change_seq 는 커밋할 때 MemberChangeSequence 가 매기는 번호라 늦게 커밋된 트랜잭션도 더 큰 번호를 받는다. (지연 시간 없이 건너뛰지 않는다)
+    //아직 커밋 안 된 변경은 음수 표시라 나오지 않는다. 삭제된 회원도 나오지 않는다.
+    ChangeSlice<MemberDto> findChangedSince(String watermark, int size);
+
+    //대용량 내보내기 -- 전체 회원을 한 행씩 consumer 에 넘긴다. 메모리 사용량이 테이블 크기와 상관없이 일정하다.
+    long streamMemberDto(int fetchSize, Consumer<MemberDto> consumer);
+
+    //대량 등록 -- chunkSize 마다 flush/clear 해서 JDBC batch 로 insert 하고 영속성 컨텍스트를 비운다.
+    long importMembers(Iterator<MemberImportRow> rows, int chunkSize);
+
+    //벌크 update -- age 이상인 회원의 나이를 1 올린다.
+    //엔티티 리스너를 거치지 않으므로 near 캐시를 직접 비운다.
+    int bulkAgePlus(int age);
+
+    //JpaRepository.deleteAllInBatch 를 덮어쓴다. -- delete 한 번이라 엔티티 리스너를 거치지 않으므로 count 캐시, near 캐시를 직접 비운다.
+    void deleteAllInBatch();
+
+    //팀 + 회원 컬렉션을 쿼리 두 번으로 조회한다. (컬렉션 페치 조인처럼 팀이 회원 수만큼 중복되지 않는다)
+    List<Team> findTeamsWithMembers();
+
+    //StatelessSession 대량 작업 -- 1차 캐시, 스냅샷, 변경 감지, 엔티티 리스너 없이 바로 SQL 을 실행한다.
+    //현재 트랜잭션의 커넥션을 그대로 쓰고, auditing 은 호출마다 한 번 구한 등록자/시각으로 직접 채운다.
+    long scrollMembersStateless(int fetchSize, Consumer<Member> consumer);
+
+    long scrollTeamsStateless(int fetchSize, Consumer<Team> consumer);
+
+    long insertStateless(Iterable<? extends BaseEntity> entities);
+
+    long updateStateless(Iterable<? extends BaseEntity> entities);
+
+    //findByNativeProjection 과 같은 네이티브 쿼리를 프록시(MemberProjection) 대신 MemberDto 생성자로 받는다. (@SqlResultSetMapping)
+    List<MemberDto> findNativeMemberDto(Pageable pageable);
 }
@@ -1,16 +1,48 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberImportRow;
+import study.datajpa.entity.BaseEntity;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     private final EntityManager em;
+    private final AuditorAware<String> auditorAware;
+    private final DateTimeProvider dateTimeProvider;
+    private final MemberCountCache countCache;
+    private final MemberNearCache nearCache;
+    private final MemberChangeSequence changeSequence;
 
 
     @Override
@@ -18,4 +50,298 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    //username 이 null 인 회원은 비교할 수 없으므로 키셋 페이징 대상에서 제외한다.
+    //idx_member_username_id (username, member_id) 인덱스 순서대로 읽으므로 정렬 없이 size + 1 건만 읽는다.
+    @Override
+    public KeysetSlice<Member> findKeysetByUsername(String cursor, int size) {
+        TypedQuery<Member> query;
+        if (cursor == null) {
+            query = em.createQuery("select m from Member m" +
+                    " where m.username is not null" +
+                    " order by m.username asc, m.id asc", Member.class);
+        } else {
+            KeysetCursor last = KeysetCursor.decode(cursor);
+            query = em.createQuery("select m from Member m" +
+                    " where m.username > :username or (m.username = :username and m.id > :id)" +
+                    " order by m.username asc, m.id asc", Member.class)
+                    .setParameter("username", last.requireKey(cursor))
+                    .setParameter("id", last.getId());
+        }
+        List<Member> members = query
+                .setMaxResults(size + 1) //한 건을 더 조회해서 다음 페이지 여부를 판단한다.
+                .getResultList();
+        return KeysetSlice.of(members, size, m -> KeysetCursor.of(m.getUsername(), m.getId()));
+    }
+
+    @Override
+    public KeysetSlice<Member> findKeysetById(String cursor, int size) {
+        long lastId = cursor == null ? 0L : KeysetCursor.decode(cursor).getId();
+        List<Member> members = em.createQuery("select m from Member m" +
+                        " where m.id > :id" +
+                        " order by m.id asc", Member.class)
+                .setParameter("id", lastId)
+                .setMaxResults(size + 1)
+                .getResultList();
+        return KeysetSlice.of(members, size, m -> KeysetCursor.of(m.getId()));
+    }
+
+    //idx_member_change_seq (changeSeq, member_id) 인덱스 순서대로 읽는다.
+    //change_seq 는 커밋 순서대로 붙으므로 (MemberChangeSequence) 워터마크 뒤에 늦게 커밋된 행이 끼어들지 않는다.
+    //커밋 전의 음수 표시는 0 보다 작아서 읽지 않는다.
+    @Override
+    public ChangeSlice<MemberDto> findChangedSince(String watermark, int size) {
+        TypedQuery<MemberDto> query;
+        if (watermark == null) {
+            query = em.createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name, m.lastModifiedDate, m.changeSeq)" +
+                    " from Member m left join m.team t" +
+                    " where m.changeSeq > 0" +
+                    " order by m.changeSeq asc, m.id asc", MemberDto.class);
+        } else {
+            KeysetCursor last = KeysetCursor.decode(watermark);
+            query = em.createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name, m.lastModifiedDate, m.changeSeq)" +
+                    " from Member m left join m.team t" +
+                    " where m.changeSeq > :changeSeq or (m.changeSeq = :changeSeq and m.id > :id)" +
+                    " order by m.changeSeq asc, m.id asc", MemberDto.class)
+                    .setParameter("changeSeq", last.requireLongKey(watermark))
+                    .setParameter("id", last.getId());
+        }
+        List<MemberDto> changed = query
+                .setMaxResults(size + 1)
+                .getResultList();
+        return ChangeSlice.of(changed, size, watermark,
+                dto -> KeysetCursor.of(String.valueOf(dto.getChangeSeq()), dto.getId()));
+    }
+
+    //엔티티가 아닌 DTO로 조회하므로 영속성 컨텍스트에 아무것도 쌓이지 않는다. (주기적으로 em.clear() 할 필요가 없다)
+    //fetchSize 만큼씩 드라이버가 가져오고, ScrollableResults 로 한 행씩 넘긴다.
+    @Override
+    @Transactional(readOnly = true)
+    public long streamMemberDto(int fetchSize, Consumer<MemberDto> consumer) {
+        long count = 0;
+        try (ScrollableResults results = em.unwrap(Session.class)
+                .createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                        " from Member m left join m.team t" +
+                        " order by m.id", MemberDto.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept((MemberDto) results.get(0));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //호출한 쪽의 영속성 컨텍스트도 chunk 마다 clear 되므로, 이미 조회해 둔 엔티티는 준영속 상태가 된다.
+    @Override
+    @Transactional
+    public long importMembers(Iterator<MemberImportRow> rows, int chunkSize) {
+        Map<String, Long> teamIds = new HashMap<>();
+        long count = 0;
+        while (rows.hasNext()) {
+            MemberImportRow row = rows.next();
+            row.validate(count + 1); //JSON 은 몇 번째 건인지
+            Member member = new Member(row.getUsername(), row.getAge());
+            if (StringUtils.hasText(row.getTeamName())) {
+                Long teamId = teamIds.computeIfAbsent(row.getTeamName(), this::findOrCreateTeamId);
+                //changeTeam 을 쓰면 team.members 컬렉션이 계속 커지므로 프록시만 연결한다.
+                member.setTeam(em.getReference(Team.class, teamId));
+            }
+            em.persist(member);
+
+            if (++count % chunkSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        return count;
+    }
+
+    //executeUpdate 는 영속성 컨텍스트를 거치지 않지만, 하이버네이트가 member 테이블의 update timestamps 를 갱신하고
+    //Member 2차 캐시 region 을 비우므로 쿼리 캐시와 2차 캐시에 수정 전 값이 남지 않는다. near 캐시는 직접 비운다.
+    //벌크 update 는 @Version, @LastModifiedDate 를 갱신하지 않으므로 직접 올린다.
+    //(영속성 컨텍스트 밖의 엔티티가 낙관적 락 충돌을 감지하고, 변경분 동기화/ETag 에 수정이 보이도록)
+    @Override
+    @Transactional
+    public int bulkAgePlus(int age) {
+        int updated = em.createQuery("update Member m set m.age = m.age + 1, m.version = m.version + 1," +
+                        " m.lastModifiedDate = CURRENT_TIMESTAMP, m.changeSeq = :changeSeq where m.age >= :age")
+                .setParameter("age", age)
+                .setParameter("changeSeq", changeSequence.pendingMarker())
+                .executeUpdate();
+        em.clear(); //@Modifying(clearAutomatically = true) 처럼 영속성 컨텍스트의 수정 전 엔티티를 비운다.
+        nearCache.invalidateAllNowAndAfterCompletion();
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllInBatch() {
+        em.createQuery("delete from Member m").executeUpdate();
+        countCache.invalidateNowAndAfterCompletion();
+        nearCache.invalidateAllNowAndAfterCompletion();
+    }
+
+    private Long findOrCreateTeamId(String name) {
+        List<Long> ids = em.createQuery("select t.id from Team t where t.name = :name", Long.class)
+                .setParameter("name", name)
+                .setMaxResults(1)
+                .getResultList();
+        if (!ids.isEmpty()) {
+            return ids.get(0);
+        }
+        Team team = new Team(name);
+        em.persist(team);
+        return team.getId();
+    }
+
+    //1. 팀만 조회 (여기서 페이징을 해도 안전하다)
+    //2. members 를 초기화하면 Team.members 의 @BatchSize 로 아직 초기화되지 않은 팀들의 회원을
+    //   select m from Member m where m.team in (...) 한 번에 팀 100개씩 채운다. -- 팀 행 중복도, distinct 도 없다.
+    //   2차 캐시의 컬렉션은 회원 id 만 들고 있어서 회원을 하나씩 다시 읽을 수 있으므로 이 조회 동안은 캐시를 쓰지 않는다.
+    //트랜잭션 밖에서 부르면 공유 엔티티 매니저가 쿼리마다 닫혀 members 초기화가 LazyInitializationException 이 나므로 읽기 트랜잭션을 연다.
+    @Override
+    @Transactional(readOnly = true)
+    public List<Team> findTeamsWithMembers() {
+        Session session = em.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            List<Team> teams = em.createQuery("select t from Team t order by t.id", Team.class)
+                    .getResultList();
+            teams.forEach(team -> Hibernate.initialize(team.getMembers()));
+            return teams;
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
+    }
+
+    //stateless 세션에는 지연 로딩이 없으므로 team 은 페치 조인으로 같이 읽는다.
+    @Override
+    @Transactional(readOnly = true)
+    public long scrollMembersStateless(int fetchSize, Consumer<Member> consumer) {
+        return withStatelessSession(stateless ->
+                scroll(stateless, "select m from Member m left join fetch m.team order by m.id", Member.class, fetchSize, consumer));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long scrollTeamsStateless(int fetchSize, Consumer<Team> consumer) {
+        return withStatelessSession(stateless ->
+                scroll(stateless, "select t from Team t order by t.id", Team.class, fetchSize, consumer));
+    }
+
+    @Override
+    @Transactional
+    public long insertStateless(Iterable<? extends BaseEntity> entities) {
+        String auditor = auditorAware.getCurrentAuditor().orElse(null);
+        LocalDateTime now = auditNow();
+        return withStatelessSession(stateless -> {
+            long count = 0;
+            for (BaseEntity entity : entities) {
+                entity.auditCreated(auditor, now);
+                markChanged(entity);
+                stateless.insert(entity);
+                count++;
+            }
+            evictCachesAfterStatelessWrite();
+            return count;
+        });
+    }
+
+    @Override
+    @Transactional
+    public long updateStateless(Iterable<? extends BaseEntity> entities) {
+        String auditor = auditorAware.getCurrentAuditor().orElse(null);
+        LocalDateTime now = auditNow();
+        return withStatelessSession(stateless -> {
+            long count = 0;
+            for (BaseEntity entity : entities) {
+                entity.auditModified(auditor, now);
+                markChanged(entity);
+                stateless.update(entity);
+                count++;
+            }
+            evictCachesAfterStatelessWrite();
+            return count;
+        });
+    }
+
+    //결과 행을 @SqlResultSetMapping(ConstructorResult) 으로 MemberDto 생성자에 바로 넘긴다. (Member 엔티티 참고)
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<MemberDto> findNativeMemberDto(Pageable pageable) {
+        Query query = em.createNamedQuery("Member.findNativeMemberDto");
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize());
+        }
+        return query.getResultList();
+    }
+
+    //엔티티 리스너(MemberChangeListener) 대신 변경분 동기화 표시를 직접 단다.
+    private void markChanged(BaseEntity entity) {
+        if (entity instanceof Member) {
+            ((Member) entity).markChanged(changeSequence.pendingMarker());
+        }
+    }
+
+    //stateless 세션은 엔티티 리스너도, 2차 캐시도, 쿼리 캐시의 update timestamps 도 거치지 않으므로 직접 비운다.
+    //커밋 전에 다른 트랜잭션이 이전 값을 다시 캐시할 수 있으므로 트랜잭션이 끝난 뒤에 한 번 더 비운다.
+    private void evictCachesAfterStatelessWrite() {
+        evictCaches();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictCaches();
+                }
+            });
+        }
+    }
+
+    private void evictCaches() {
+        Cache cache = em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Member.class);
+        cache.evictEntityData(Team.class);
+        cache.evictCollectionData(Team.class.getName() + ".members");
+        cache.evictQueryRegions();
+        countCache.invalidate();
+        nearCache.invalidateAll();
+    }
+
+    private LocalDateTime auditNow() {
+        return dateTimeProvider.getNow().map(LocalDateTime::from).orElseGet(LocalDateTime::now);
+    }
+
+    //현재 트랜잭션의 커넥션으로 StatelessSession 을 연다. (커밋/롤백은 스프링 트랜잭션이 한다)
+    private long withStatelessSession(Function<StatelessSession, Long> work) {
+        Session session = em.unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            StatelessSession stateless = session.getSessionFactory().openStatelessSession(connection);
+            try {
+                return work.apply(stateless);
+            } finally {
+                stateless.close();
+            }
+        });
+    }
+
+    private static <T> long scroll(StatelessSession stateless, String jpql, Class<T> type, int fetchSize, Consumer<T> consumer) {
+        long count = 0;
+        try (ScrollableResults results = stateless.createQuery(jpql, type)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(type.cast(results.get(0)));
+                count++;
+            }
+        }
+        return count;
+    }
 }
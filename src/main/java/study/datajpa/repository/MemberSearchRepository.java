@@ -0,0 +1,168 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import study.datajpa.dto.MemberSearchCondition;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//회원 검색 (/members/search) -- 조건의 "모양"(어떤 조건이 있는지)별로 만든 JPQL 을 캐시해서 실행한다.
+//Specification 은 호출마다 Criteria 트리(팀 조인 포함)를 만들고 JPQL 로 다시 렌더링하지만,
+//여기서는 모양별 JPQL 문자열을 한 번만 만들고 파라미터만 바인딩한다. (같은 문자열이라 하이버네이트 쿼리 플랜 캐시도 맞는다)
+//페이징의 count 쿼리도 같은 where 절로 모양별로 캐시한다.
+@Repository
+public class MemberSearchRepository {
+
+    //조건별 비트 -- 있는 조건의 비트를 OR 한 값이 쿼리의 모양
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+    private static final int CREATED_FROM = 1 << 4;
+    private static final int CREATED_TO = 1 << 5;
+
+    //정렬할 수 있는 속성 -- Pageable 의 정렬 속성을 JPQL 에 그대로 붙이지 않는다.
+    private static final Map<String, String> SORTABLE = Map.of(
+            "id", "m.id",
+            "username", "m.username",
+            "age", "m.age",
+            "createdDate", "m.createdDate");
+
+    private final EntityManager em;
+    private final Map<String, String> queries = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public MemberSearchRepository(EntityManager em, MeterRegistry registry) {
+        this.em = em;
+        this.hits = registry.counter("member.search.query.cache", "result", "hit");
+        this.misses = registry.counter("member.search.query.cache", "result", "miss");
+    }
+
+    public List<Member> search(MemberSearchCondition condition) {
+        return bind(em.createQuery(jpql("select m", shape(condition), Sort.unsorted()), Member.class), condition)
+                .getResultList();
+    }
+
+    //첫 페이지의 내용이 페이지 크기보다 적으면 count 쿼리를 생략한다. (스프링 데이터 JPA 의 findAll(spec, pageable) 과 같다)
+    public Page<Member> search(MemberSearchCondition condition, Pageable pageable) {
+        int shape = shape(condition);
+        TypedQuery<Member> query = bind(em.createQuery(jpql("select m", shape, pageable.getSort()), Member.class), condition);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable,
+                () -> bind(em.createQuery(jpql("select count(m)", shape, Sort.unsorted()), Long.class), condition)
+                        .getSingleResult());
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, MemberSearchCondition condition) {
+        if (StringUtils.hasText(condition.getUsername())) {
+            query.setParameter("username", condition.getUsername());
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            query.setParameter("teamName", condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            query.setParameter("ageGoe", condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            query.setParameter("ageLoe", condition.getAgeLoe());
+        }
+        if (condition.getCreatedFrom() != null) {
+            query.setParameter("createdFrom", condition.getCreatedFrom());
+        }
+        if (condition.getCreatedTo() != null) {
+            query.setParameter("createdTo", condition.getCreatedTo());
+        }
+        return query;
+    }
+
+    private String jpql(String select, int shape, Sort sort) {
+        String key = select + "|" + shape + "|" + sort;
+        String jpql = queries.get(key);
+        if (jpql != null) {
+            hits.increment();
+            return jpql;
+        }
+        misses.increment();
+        return queries.computeIfAbsent(key, k -> compile(select, shape, sort));
+    }
+
+    private static int shape(MemberSearchCondition condition) {
+        int shape = 0;
+        if (StringUtils.hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        if (condition.getCreatedFrom() != null) {
+            shape |= CREATED_FROM;
+        }
+        if (condition.getCreatedTo() != null) {
+            shape |= CREATED_TO;
+        }
+        return shape;
+    }
+
+    private static String compile(String select, int shape, Sort sort) {
+        StringBuilder jpql = new StringBuilder(select).append(" from Member m");
+        if ((shape & TEAM_NAME) != 0) {
+            jpql.append(" join m.team t");
+        }
+        List<String> where = new ArrayList<>();
+        if ((shape & USERNAME) != 0) {
+            where.add("m.username = :username");
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            where.add("t.name = :teamName");
+        }
+        if ((shape & AGE_GOE) != 0) {
+            where.add("m.age >= :ageGoe");
+        }
+        if ((shape & AGE_LOE) != 0) {
+            where.add("m.age <= :ageLoe");
+        }
+        if ((shape & CREATED_FROM) != 0) {
+            where.add("m.createdDate >= :createdFrom");
+        }
+        if ((shape & CREATED_TO) != 0) {
+            where.add("m.createdDate < :createdTo");
+        }
+        if (!where.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", where));
+        }
+        if (sort.isSorted()) {
+            List<String> orders = new ArrayList<>();
+            for (Sort.Order order : sort) {
+                String path = SORTABLE.get(order.getProperty());
+                if (path == null) {
+                    throw new IllegalArgumentException("정렬할 수 없는 속성입니다: " + order.getProperty());
+                }
+                orders.add(path + (order.isAscending() ? " asc" : " desc"));
+            }
+            jpql.append(" order by ").append(String.join(", ", orders));
+        }
+        return jpql.toString();
+    }
+}
@@ -20,6 +20,11 @@ public class MemberSpec {
         };
     }
     public static Specification<Member> username(final String username) {
-        return (Specification<Member>) (root, query, builder) ->  builder.equal(root.get("username"), username);
+        return (Specification<Member>) (root, query, builder) -> {
+            if (StringUtils.isEmpty(username)) {
+                return null;
+            }
+            return builder.equal(root.get("username"), username);
+        };
     }
 }
@@ -0,0 +1,72 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+//@Version 충돌(낙관적 락 실패)이 나면 새 트랜잭션에서 처음부터 다시 실행한다.
+//findLockByUsername(select ... for update) 처럼 락을 잡고 기다리지 않고, 충돌한 쪽만 잠깐 쉬었다가 다시 읽어서 반영한다.
+//action 은 매 시도마다 새 트랜잭션(REQUIRES_NEW)에서 실행되므로 엔티티를 action 안에서 다시 조회해야 한다.
+@Component
+public class OptimisticRetryTemplate {
+
+    private final TransactionTemplate transaction;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Counter retries;
+    private final Counter failures;
+
+    public OptimisticRetryTemplate(PlatformTransactionManager transactionManager,
+                                   MeterRegistry registry,
+                                   @Value("${app.optimistic-retry.max-attempts:5}") int maxAttempts,
+                                   @Value("${app.optimistic-retry.initial-backoff:10ms}") Duration initialBackoff,
+                                   @Value("${app.optimistic-retry.max-backoff:200ms}") Duration maxBackoff) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retries = registry.counter("member.optimistic.retry", "result", "retry");
+        this.failures = registry.counter("member.optimistic.retry", "result", "exhausted");
+    }
+
+    public <T> T execute(TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(action);
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    failures.increment();
+                    throw e;
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    //지수 백오프 + 지터 -- 충돌한 트랜잭션들이 같은 시점에 다시 부딪히지 않도록 0 ~ initial * 2^(n-1) 사이에서 쉰다.
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("낙관적 락 재시도 중 인터럽트", e);
+        }
+    }
+}
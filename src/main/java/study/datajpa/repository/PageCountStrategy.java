@@ -0,0 +1,17 @@
+package study.datajpa.repository;
+
+//Page 의 전체 카운트를 구하는 방법
+public enum PageCountStrategy {
+
+    //매번 count 쿼리 (기본)
+    EXACT,
+
+    //TTL 동안 캐시한 count -- 회원이 저장/삭제되면 바로 무효화된다.
+    CACHED,
+
+    //0 페이지일 때만 count 쿼리, 다음 페이지들은 캐시한 값을 쓴다.
+    FIRST_PAGE_ONLY,
+
+    //DB 통계의 추정 행 수 -- 조건 없는 전체 count 에만 쓸 수 있다.
+    ESTIMATED
+}
@@ -1,7 +1,14 @@
 package study.datajpa.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import study.datajpa.entity.Team;
 
+import java.time.LocalDateTime;
+
 public interface TeamRepository extends JpaRepository<Team,Long> {
+
+    //GET /members 의 ETag -- 목록의 팀 이름이 바뀌었는지 (idx_team_last_modified)
+    @Query("select max(t.lastModifiedDate) from Team t")
+    LocalDateTime findLastModifiedDate();
 }
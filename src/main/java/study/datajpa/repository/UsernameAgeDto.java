@@ -0,0 +1,22 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+
+//닫힌(closed) 클래스 프로젝션 -- UsernameOnly 의 @Value("#{target.username + ' ' + target.age}") 대신 사용
+//필요한 컬럼(username, age)만 select new 로 조회하고, 문자열 조합도 SpEL/프록시 없이 일반 메서드로 한다.
+@Getter
+public class UsernameAgeDto {
+
+    private final String username;
+    private final int age;
+
+    public UsernameAgeDto(String username, int age) {
+        this.username = username;
+        this.age = age;
+    }
+
+    //UsernameOnly.getUsername() 과 같은 값
+    public String getUsernameAndAge() {
+        return username + " " + age;
+    }
+}
@@ -0,0 +1,65 @@
+package study.datajpa.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+import org.hibernate.id.enhanced.PooledOptimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//application.yml 의 기본값(50, pooled-lo)이 아닌 값으로 member_seq 만 덮어쓴다.
+//공유 DB 의 member_seq 가 increment 500 으로 남으면 다른 컨텍스트가 기동할 때 실패하므로 메모리 DB 를 따로 쓴다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sequence;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.jpa.properties.app.id.member_seq.increment_size=500",
+        "spring.jpa.properties.app.id.member_seq.optimizer=pooled"
+})
+@Transactional
+class ConfigurableSequenceGeneratorTest {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    public void overrideFromSettings() {
+        //when
+        Optimizer memberOptimizer = optimizerOf(Member.class);
+        Optimizer teamOptimizer = optimizerOf(Team.class);
+
+        //then
+        assertThat(memberOptimizer).isInstanceOf(PooledOptimizer.class);
+        assertThat(memberOptimizer.getIncrementSize()).isEqualTo(500);
+        assertThat(teamOptimizer).isInstanceOf(PooledLoOptimizer.class); //덮어쓰지 않은 시퀀스는 기본값
+        assertThat(teamOptimizer.getIncrementSize()).isEqualTo(50);
+    }
+
+    //스키마(ddl-auto)도 덮어쓴 increment_size 로 시퀀스를 만든다.
+    @Test
+    public void databaseSequenceUsesOverriddenIncrement() {
+        //when
+        Number increment = (Number) em.createNativeQuery("select INCREMENT from INFORMATION_SCHEMA.SEQUENCES" +
+                        " where SEQUENCE_SCHEMA = CURRENT_SCHEMA and SEQUENCE_NAME = 'MEMBER_SEQ'")
+                .getSingleResult();
+
+        //then
+        assertThat(increment.longValue()).isEqualTo(500);
+    }
+
+    private Optimizer optimizerOf(Class<?> entityClass) {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        IdentifierGenerator generator = sessionFactory.getMetamodel().entityPersister(entityClass).getIdentifierGenerator();
+        assertThat(generator).isInstanceOf(ConfigurableSequenceGenerator.class);
+        return ((SequenceStyleGenerator) generator).getOptimizer();
+    }
+}
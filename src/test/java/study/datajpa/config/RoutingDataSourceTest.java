@@ -0,0 +1,52 @@
+package study.datajpa.config;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//로컬 H2 메모리 DB 두 개로 primary / replica 라우팅 확인
+@SpringBootTest(properties = {
+        "app.datasource.routing.enabled=true",
+        "app.datasource.primary.jdbc-url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.primary.username=sa",
+        "app.datasource.primary.pool-name=primary",
+        "app.datasource.replica.jdbc-url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.pool-name=replica"
+})
+class RoutingDataSourceTest {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    public void readOnlyTransactionGoesToReplica() {
+        //given
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        //when
+        String readOnlyUrl = readOnly.execute(status -> connectionUrl());
+        String readWriteUrl = readWrite.execute(status -> connectionUrl());
+
+        //then
+        assertThat(readOnlyUrl).contains("replica");
+        assertThat(readWriteUrl).contains("primary");
+    }
+
+    private String connectionUrl() {
+        return em.unwrap(Session.class).doReturningWork(connection -> connection.getMetaData().getURL());
+    }
+}
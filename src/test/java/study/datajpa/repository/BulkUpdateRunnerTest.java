@@ -0,0 +1,60 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//chunk 마다 별도 트랜잭션으로 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+@SpringBootTest
+class BulkUpdateRunnerTest {
+
+    @Autowired
+    private BulkUpdateRunner bulkUpdateRunner;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Test
+    public void chunkedBulkAgePlus() {
+        //given
+        Member m1 = memberRepository.save(new Member("bulk1", 5000));
+        memberRepository.save(new Member("bulk2", 5001));
+        Member m3 = memberRepository.save(new Member("bulk3", 5002));
+        memberRepository.save(new Member("bulk4", 10));
+
+        //when
+        List<BulkProgress> reported = new ArrayList<>();
+        BulkProgress progress = bulkUpdateRunner.bulkAgePlus(5000,
+                BulkUpdateOptions.chunkSize(2).onProgress(reported::add));
+
+        //then
+        assertThat(progress.getUpdatedRows()).isEqualTo(3);
+        assertThat(progress.isDone()).isTrue();
+        assertThat(reported.size()).isEqualTo(progress.getChunks());
+        assertThat(memberRepository.findById(m1.getId()).orElseThrow().getAge()).isEqualTo(5001);
+        assertThat(memberRepository.findById(m3.getId()).orElseThrow().getAge()).isEqualTo(5003);
+    }
+
+    @Test
+    public void resumeAfterLastId() {
+        //given
+        Member m1 = memberRepository.save(new Member("resume1", 6000));
+        Member m2 = memberRepository.save(new Member("resume2", 6000));
+
+        //when
+        //m1 까지 처리하고 멈췄다고 가정하고 그 다음부터 이어서 실행
+        BulkProgress progress = bulkUpdateRunner.bulkAgePlus(6000,
+                BulkUpdateOptions.chunkSize(100).resumeAfter(m1.getId()));
+
+        //then
+        assertThat(progress.getUpdatedRows()).isEqualTo(1);
+        assertThat(memberRepository.findById(m1.getId()).orElseThrow().getAge()).isEqualTo(6000);
+        assertThat(memberRepository.findById(m2.getId()).orElseThrow().getAge()).isEqualTo(6001);
+    }
+}
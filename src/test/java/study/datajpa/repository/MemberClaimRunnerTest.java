@@ -0,0 +1,64 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//워커마다 별도 트랜잭션으로 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+@SpringBootTest
+class MemberClaimRunnerTest {
+
+    @Autowired
+    private MemberClaimRunner memberClaimRunner;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void parallelWorkersProcessEveryMember() throws Exception {
+        //given
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(memberRepository.save(new Member("claim" + i, 7000)).getId());
+        }
+        //다른 테스트가 남긴 회원은 건드리지 않도록 이 테스트가 만든 id 범위만 처리한다.
+        long fromId = Collections.min(ids);
+        long toId = Collections.max(ids);
+        Thread.sleep(10);
+        LocalDateTime cutoff = LocalDateTime.now();
+
+        //when
+        Set<Long> processed = ConcurrentHashMap.newKeySet();
+        long count = memberClaimRunner.run(4, 3, cutoff, fromId, toId, member -> {
+            processed.add(member.getId());
+            member.setAge(member.getAge() + 1);
+        });
+
+        //then
+        assertThat(count).isEqualTo(ids.size());
+        assertThat(processed).containsExactlyInAnyOrderElementsOf(ids);
+        List<Member> reclaimed = new TransactionTemplate(transactionManager)
+                .execute(status -> memberRepository.claimNext(100, cutoff, fromId, toId));
+        assertThat(reclaimed).isEmpty(); //처리한 회원은 다시 claim 되지 않는다
+        for (Long id : ids) {
+            Member member = memberRepository.findById(id).orElseThrow();
+            assertThat(member.getAge()).isEqualTo(7001);
+            assertThat(member.getProcessedAt()).isAfterOrEqualTo(cutoff);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//count 는 다른 스레드의 별도 트랜잭션에서 실행되므로 테스트 트랜잭션 없이 저장마다 커밋한다.
+//건수를 정확히 맞추기 위해 메모리 DB 를 따로 쓴다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:parallel-count;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "app.paging.parallel-count=true"
+})
+class MemberPageRepositoryParallelCountTest {
+
+    @Autowired
+    private MemberPageRepository memberPageRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private ThreadPoolTaskExecutor pageCountExecutor;
+
+    @AfterEach
+    public void tearDown() {
+        memberRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void countRunsOnCountPool() {
+        //given
+        memberRepository.save(new Member("parallel1", 10));
+        memberRepository.save(new Member("parallel2", 10));
+        memberRepository.save(new Member("parallel3", 10));
+        long tasksBefore = pageCountExecutor.getThreadPoolExecutor().getTaskCount();
+
+        //when
+        Page<MemberDto> page = memberPageRepository.findMemberDto(PageRequest.of(0, 2), PageCountStrategy.EXACT);
+
+        //then
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(pageCountExecutor.getThreadPoolExecutor().getTaskCount()).isEqualTo(tasksBefore + 1);
+    }
+
+    //내용이 한 페이지보다 적으면 PageableExecutionUtils 가 count 를 부르지 않으므로 제출하지도 않는다.
+    @Test
+    public void countNotSubmittedWhenUnused() {
+        //given
+        memberRepository.save(new Member("parallel1", 10));
+        memberRepository.save(new Member("parallel2", 10));
+        long tasksBefore = pageCountExecutor.getThreadPoolExecutor().getTaskCount();
+
+        //when
+        Page<MemberDto> page = memberPageRepository.findMemberDto(PageRequest.of(0, 10), PageCountStrategy.EXACT);
+
+        //then
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(pageCountExecutor.getThreadPoolExecutor().getTaskCount()).isEqualTo(tasksBefore);
+    }
+}
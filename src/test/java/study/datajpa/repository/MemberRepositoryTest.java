@@ -1,23 +1,46 @@
 package study.datajpa.repository;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberChangeStamp;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberImportException;
+import study.datajpa.dto.MemberImportRow;
+import study.datajpa.dto.MemberSearchCondition;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.metrics.SqlStatementCounter;
+import study.datajpa.metrics.SqlTraceListener;
+import study.datajpa.metrics.SqlTraceMode;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -33,6 +56,24 @@ class MemberRepositoryTest {
     @Autowired
     private MemberQueryRepository memberQueryRepository;
 
+    @Autowired
+    private MemberPageRepository memberPageRepository;
+
+    @Autowired
+    private MemberSearchRepository memberSearchRepository;
+
+    @Autowired
+    private MemberNearCache memberNearCache;
+
+    @Autowired
+    private SqlTraceListener sqlTraceListener;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @PersistenceContext
     private EntityManager em;
 
@@ -248,6 +289,188 @@ class MemberRepositoryTest {
         assertThat(slice.hasNext()).isTrue(); //다음 페이지가 있나?
     }
 
+    @Test
+    public void pagingCountStrategy() {
+        //given
+        memberRepository.save(new Member("member1",10));
+        memberRepository.save(new Member("member2",10));
+        memberRepository.save(new Member("member3",10));
+        em.flush();
+
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "username"));
+        long total = memberRepository.count();
+
+        //when
+        Page<Member> exact = memberPageRepository.findPageByAge(10, pageRequest, PageCountStrategy.EXACT);
+        Page<Member> cached = memberPageRepository.findPageByAge(10, pageRequest, PageCountStrategy.CACHED);
+        Page<Member> firstPageOnly = memberPageRepository.findAll(pageRequest.next(), PageCountStrategy.FIRST_PAGE_ONLY);
+        memberRepository.save(new Member("member4",10));
+        em.flush(); //insert 가 실행되면(@PostPersist) 캐시한 count 는 무효화된다
+        Page<Member> afterInsert = memberPageRepository.findPageByAge(10, pageRequest, PageCountStrategy.CACHED);
+
+        //then
+        assertThat(exact.getContent().size()).isEqualTo(2);
+        assertThat(exact.getTotalElements()).isEqualTo(total);
+        assertThat(cached.getTotalElements()).isEqualTo(total);
+        assertThat(firstPageOnly.getTotalElements()).isEqualTo(total);
+        assertThat(afterInsert.getTotalElements()).isEqualTo(total + 1);
+    }
+
+    //통계 기반 추정치를 그대로 쓰고 count(*) 는 하지 않는다.
+    @Test
+    public void pagingEstimatedCount() {
+        //given
+        memberRepository.save(new Member("estimate1", 10));
+        memberRepository.save(new Member("estimate2", 10));
+        memberRepository.save(new Member("estimate3", 10));
+        em.flush();
+        em.clear();
+        Number estimate = (Number) em.createNativeQuery("select ROW_COUNT_ESTIMATE from INFORMATION_SCHEMA.TABLES" +
+                        " where TABLE_SCHEMA = CURRENT_SCHEMA and TABLE_NAME = 'MEMBER'")
+                .getSingleResult();
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        //when
+        long statementsBefore = SqlStatementCounter.current();
+        Page<MemberDto> page = memberPageRepository.findMemberDto(pageRequest, PageCountStrategy.ESTIMATED);
+        long statements = SqlStatementCounter.current() - statementsBefore;
+
+        //then
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(statements).isEqualTo(2); //내용 + 추정치
+        assertThat(page.getTotalElements()).isEqualTo(Math.max(estimate.longValue(), 2)); //추정치가 내용보다 작으면 PageImpl 이 내용 건수로 맞춘다
+    }
+
+    //롤백된 insert 의 건수가 캐시에 남지 않는다. (flush 때 비우고 트랜잭션이 끝난 뒤에 한 번 더 비운다)
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void countCacheInvalidatedAfterRollback() {
+        //given
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        //when
+        Long countInTransaction = new TransactionTemplate(transactionManager).execute(status -> {
+            memberRepository.save(new Member("rollbackCount", 10));
+            memberRepository.flush();
+            long total = memberPageRepository.findAll(pageRequest, PageCountStrategy.CACHED).getTotalElements();
+            status.setRollbackOnly();
+            return total;
+        });
+        long countAfterRollback = memberPageRepository.findAll(pageRequest, PageCountStrategy.CACHED).getTotalElements();
+
+        //then
+        assertThat(countAfterRollback).isEqualTo(memberRepository.count());
+        assertThat(countInTransaction).isEqualTo(countAfterRollback + 1);
+    }
+
+    @Test
+    public void pagingKeyset() {
+        //given
+        memberRepository.save(new Member("keyset1",10));
+        memberRepository.save(new Member("keyset2",10));
+        memberRepository.save(new Member("keyset3",10));
+        memberRepository.save(new Member("keyset4",10));
+        memberRepository.save(new Member("keyset5",10));
+        em.flush();
+        em.clear();
+
+        //when
+        //이전 페이지의 nextCursor 로 다음 페이지를 조회한다 -- offset 을 사용하지 않는다.
+        List<Long> ids = new ArrayList<>();
+        KeysetSlice<Member> slice = memberRepository.findKeysetById(null, 2);
+        slice.getContent().forEach(member -> ids.add(member.getId()));
+        while (slice.isHasNext()) {
+            slice = memberRepository.findKeysetById(slice.getNextCursor(), 2);
+            slice.getContent().forEach(member -> ids.add(member.getId()));
+        }
+
+        KeysetSlice<Member> byUsername = memberRepository.findKeysetByUsername(null, 3);
+
+        //then
+        assertThat(ids).doesNotHaveDuplicates();
+        assertThat(ids).isSorted();
+        assertThat(slice.getNextCursor()).isNull();
+        assertThat(byUsername.getContent().size()).isEqualTo(3);
+        assertThat(byUsername.isHasNext()).isTrue();
+        //잘못된 커서 -- 컨트롤러에서 400
+        assertThatThrownBy(() -> memberRepository.findKeysetByUsername("not-a-cursor!", 3))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> memberRepository.findKeysetByUsername(KeysetCursor.of(1L).encode(), 3)) //키가 없는 id 커서
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    public void streamMemberDto() {
+        //given
+        Team team = new Team("teamA");
+        teamRepository.save(team);
+        memberRepository.save(new Member("stream1", 10, team));
+        memberRepository.save(new Member("stream2", 20, team));
+        em.flush();
+        em.clear();
+
+        //when
+        List<MemberDto> result = new ArrayList<>();
+        long count = memberRepository.streamMemberDto(100, result::add);
+
+        //then
+        assertThat(count).isEqualTo(result.size());
+        assertThat(result).extracting("username").contains("stream1", "stream2");
+    }
+
+    @Test
+    public void importMembers() {
+        //given
+        List<MemberImportRow> rows = Arrays.asList(
+                new MemberImportRow("import1", 10, "importTeam"),
+                new MemberImportRow("import2", 20, "importTeam"),
+                new MemberImportRow("import3", 30, null));
+
+        //when
+        long count = memberRepository.importMembers(rows.iterator(), 2); //2건마다 flush, clear
+
+        //then
+        List<Member> result = memberRepository.findByNames(Arrays.asList("import1", "import2", "import3"));
+        assertThat(count).isEqualTo(3);
+        assertThat(result.size()).isEqualTo(3);
+        assertThat(result.stream().filter(m -> m.getTeam() != null).map(m -> m.getTeam().getId()).distinct().count())
+                .isEqualTo(1); //같은 이름의 팀은 한 번만 만든다
+    }
+
+    @Test
+    public void importCsvValidation() {
+        //헤더, 빈 줄은 건너뛰고 잘못된 줄은 줄 번호와 함께 거절한다.
+        assertThat(MemberImportRow.fromCsv(1, "username,age,teamName")).isEmpty();
+        assertThat(MemberImportRow.fromCsv(2, " ")).isEmpty();
+        assertThat(MemberImportRow.fromCsv(3, "csv1,10,teamA")).contains(new MemberImportRow("csv1", 10, "teamA"));
+        assertThatThrownBy(() -> MemberImportRow.fromCsv(4, "csv2,ten"))
+                .isInstanceOf(MemberImportException.class)
+                .hasMessageContaining("4번째 줄");
+        assertThatThrownBy(() -> MemberImportRow.fromCsv(5, "csv3"))
+                .isInstanceOf(MemberImportException.class);
+        assertThatThrownBy(() -> MemberImportRow.fromCsv(6, "username,age")) //헤더는 첫 줄만
+                .isInstanceOf(MemberImportException.class);
+        assertThatThrownBy(() -> MemberImportRow.fromCsv(7, "csv4,-1"))
+                .isInstanceOf(MemberImportException.class)
+                .hasMessageContaining("7번째 줄");
+    }
+
+    //JSON, NDJSON 으로 읽은 행도 importMembers 가 CSV 와 같은 검사를 한다.
+    @Test
+    public void importMembersValidation() {
+        List<MemberImportRow> blankUsername = Arrays.asList(
+                new MemberImportRow("json1", 10, null),
+                new MemberImportRow(" ", 20, null));
+        List<MemberImportRow> negativeAge = List.of(new MemberImportRow("json2", -1, null));
+
+        assertThatThrownBy(() -> memberRepository.importMembers(blankUsername.iterator(), 10))
+                .isInstanceOf(MemberImportException.class)
+                .hasMessageContaining("2번째 줄");
+        assertThatThrownBy(() -> memberRepository.importMembers(negativeAge.iterator(), 10))
+                .isInstanceOf(MemberImportException.class)
+                .hasMessageContaining("age");
+    }
+
     @Test
     public void bulkTest() {
         //given
@@ -268,6 +491,28 @@ class MemberRepositoryTest {
         assertThat(resultCount).isEqualTo(3);
     }
 
+    //벌크 update 는 엔티티 리스너를 거치지 않으므로 near 캐시 전체를 비운다.
+    @Test
+    public void bulkUpdateInvalidatesNearCache() {
+        //given
+        Member member = memberRepository.save(new Member("bulkNear", 30));
+        em.flush();
+        List<Long> loads = new ArrayList<>();
+        Supplier<Optional<MemberDto>> loader = () -> {
+            loads.add(member.getId());
+            return memberRepository.findMemberDtoById(member.getId());
+        };
+        memberNearCache.get(member.getId(), loader);
+        memberNearCache.get(member.getId(), loader); //캐시에서
+
+        //when
+        memberRepository.bulkAgePlus(30);
+        memberNearCache.get(member.getId(), loader);
+
+        //then
+        assertThat(loads).hasSize(2);
+    }
+
     @Test
     public void findMemberLazy() {
         //given
@@ -354,6 +599,184 @@ class MemberRepositoryTest {
         }
     }
 
+    //2차 캐시
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //커밋되어야 2차 캐시에 들어간다
+    public void secondLevelCacheTeam() {
+        //given
+        Team teamA = teamRepository.save(new Team("cacheTeamA"));
+        memberRepository.save(new Member("cacheMember1", 10, teamA));
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long hitsBefore = statistics.getSecondLevelCacheHitCount();
+
+        //when
+        //조회마다 새 영속성 컨텍스트지만 팀은 2차 캐시에서 꺼내므로 select 가 나가지 않는다.
+        teamRepository.findById(teamA.getId()).orElseThrow();
+        long statementsBefore = SqlStatementCounter.current();
+        Team findTeam = teamRepository.findById(teamA.getId()).orElseThrow();
+        long statements = SqlStatementCounter.current() - statementsBefore;
+
+        //then
+        assertThat(findTeam.getName()).isEqualTo("cacheTeamA");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(hitsBefore);
+        assertThat(statements).isZero();
+    }
+
+    //쿼리 캐시
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //트랜잭션 안에서 flush 한 테이블은 커밋 전까지 쿼리 캐시를 쓰지 않는다
+    public void queryCache() {
+        //given
+        //저장, 벌크 연산은 트랜잭션 안에서 커밋하고 캐시된 조회만 트랜잭션 밖에서 한다.
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("queryCache1", 10));
+            memberRepository.save(new Member("queryCache2", 20));
+        });
+        List<String> names = Arrays.asList("queryCache1", "queryCache2");
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        //when
+        memberRepository.findByNames(names);
+        long hits = statistics.getQueryCacheHitCount();
+        memberRepository.findByNames(names); //같은 쿼리, 같은 파라미터 -- 캐시된 결과
+        long hitsAfterRepeat = statistics.getQueryCacheHitCount();
+
+        tx.executeWithoutResult(status -> memberRepository.bulkAgePlus(20)); //벌크 연산 후에는 캐시된 결과를 쓰지 않는다
+        long misses = statistics.getQueryCacheMissCount();
+        List<Member> result = memberRepository.findByNames(names);
+
+        //then
+        assertThat(hitsAfterRepeat).isEqualTo(hits + 1);
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(misses + 1);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hitsAfterRepeat);
+        assertThat(result).extracting("age").contains(21);
+    }
+
+    //리포지토리 메서드별 SQL 수
+    @Test
+    public void repositoryStatementMetrics() {
+        //given
+        Team teamA = new Team("teamA");
+        teamRepository.save(teamA);
+        memberRepository.save(new Member("member1", 10, teamA));
+        em.flush();
+        em.clear();
+
+        DistributionSummary statements = repositorySummary("spring.data.repository.statements", "findMemberFetchJoin");
+        DistributionSummary rows = repositorySummary("spring.data.repository.rows", "findMemberFetchJoin");
+        long statementCalls = statements.count();
+        double statementTotal = statements.totalAmount();
+        long rowCalls = rows.count();
+        double rowTotal = rows.totalAmount();
+
+        //when
+        List<Member> result = memberRepository.findMemberFetchJoin();
+
+        //then -- 호출 한 번에 페치 조인 select 하나, 반환한 회원 수만큼 행
+        assertThat(statements.count()).isEqualTo(statementCalls + 1);
+        assertThat(statements.totalAmount()).isEqualTo(statementTotal + 1);
+        assertThat(rows.count()).isEqualTo(rowCalls + 1);
+        assertThat(rows.totalAmount()).isEqualTo(rowTotal + result.size());
+        assertThat(result).extracting("username").contains("member1");
+    }
+
+    //다른 테스트가 같은 메서드를 부르면 값이 쌓이므로 호출 전후 차이로 비교한다. (호출 전에 없으면 0 으로 등록한다)
+    private DistributionSummary repositorySummary(String name, String method) {
+        return DistributionSummary.builder(name)
+                .tag("repository", "MemberRepository")
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
+    @Test
+    public void findTeamsWithMembers() {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        teamRepository.save(teamA);
+        teamRepository.save(teamB);
+        memberRepository.save(new Member("member1", 10, teamA));
+        memberRepository.save(new Member("member2", 20, teamA));
+        memberRepository.save(new Member("member3", 30, teamB));
+        em.flush();
+        em.clear();
+
+        //when
+        //select team 한 번, 팀들의 member 를 in 으로 한 번 (팀 100개까지)
+        long statementsBefore = SqlStatementCounter.current();
+        List<Team> teams = memberRepository.findTeamsWithMembers();
+        long statements = SqlStatementCounter.current() - statementsBefore;
+
+        //then
+        assertThat(statements).isEqualTo(2);
+        assertThat(teams).doesNotHaveDuplicates();
+        for (Team team : teams) {
+            assertThat(Hibernate.isInitialized(team.getMembers())).isTrue();
+        }
+        Team findTeamA = teams.stream().filter(t -> t.getId().equals(teamA.getId())).findFirst().orElseThrow();
+        assertThat(findTeamA.getMembers()).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //서비스 밖(트랜잭션 없이)에서 불러도 members 가 초기화되어 나온다
+    public void findTeamsWithMembersWithoutTransaction() {
+        //given
+        Team team = teamRepository.save(new Team("noTxTeam"));
+        memberRepository.save(new Member("noTxMember1", 10, team));
+        memberRepository.save(new Member("noTxMember2", 20, team));
+
+        //when
+        List<Team> teams = memberRepository.findTeamsWithMembers();
+
+        //then
+        Team findTeam = teams.stream().filter(t -> t.getId().equals(team.getId())).findFirst().orElseThrow();
+        assertThat(Hibernate.isInitialized(findTeam.getMembers())).isTrue();
+        assertThat(findTeam.getMembers()).extracting("username").containsExactlyInAnyOrder("noTxMember1", "noTxMember2");
+    }
+
+    //StatelessSession 대량 작업
+    @Test
+    public void statelessInsertAndScroll() {
+        //given
+        Team team = new Team("statelessTeam");
+        memberRepository.insertStateless(List.of(team));
+        Member m1 = new Member("stateless1", 10, team);
+        Member m2 = new Member("stateless2", 20, team);
+
+        //when
+        long inserted = memberRepository.insertStateless(Arrays.asList(m1, m2));
+        List<Member> scrolled = new ArrayList<>();
+        memberRepository.scrollMembersStateless(100, scrolled::add);
+
+        //then
+        assertThat(inserted).isEqualTo(2);
+        assertThat(m1.getId()).isNotNull();
+        assertThat(m1.getCreatedDate()).isNotNull(); //엔티티 리스너 대신 직접 채운 auditing
+        assertThat(m1.getCreateBy()).isNotNull();
+        assertThat(em.contains(m1)).isFalse(); //영속성 컨텍스트에 올라가지 않는다
+        assertThat(scrolled).extracting("username").contains("stateless1", "stateless2");
+    }
+
+    //stateless 로 바꾼 팀이 2차 캐시의 이전 값으로 조회되지 않는다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void statelessUpdateEvictsSecondLevelCache() {
+        //given
+        Team team = teamRepository.save(new Team("statelessCacheTeam"));
+        Team cached = teamRepository.findById(team.getId()).orElseThrow();
+
+        //when
+        cached.setName("statelessCacheTeam2");
+        memberRepository.updateStateless(List.of(cached));
+
+        //then
+        Team findTeam = teamRepository.findById(team.getId()).orElseThrow();
+        assertThat(findTeam.getName()).isEqualTo("statelessCacheTeam2");
+    }
+
     //JPA 힌트
 
     // 전
@@ -436,6 +859,39 @@ class MemberRepositoryTest {
     }
 
 
+    //조건 모양별로 캐시한 JPQL 로 검색 -- specBasic 과 같은 결과
+    @Test
+    public void searchCachedShape() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        Member m1 = new Member("m1", 0, teamA);
+        Member m2 = new Member("m2", 0, teamA);
+        em.persist(m1);
+        em.persist(m2);
+
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("m1");
+        condition.setTeamName("teamA");
+
+        //when
+        List<Member> first = memberSearchRepository.search(condition);
+        List<Member> second = memberSearchRepository.search(condition); //같은 모양 -- 캐시한 JPQL 사용
+        Page<Member> page = memberSearchRepository.search(condition, PageRequest.of(0, 10, Sort.by("username")));
+
+        //then
+        assertThat(first).extracting("username").containsOnly("m1");
+        assertThat(second.size()).isEqualTo(first.size());
+        assertThat(page.getContent()).extracting("username").containsOnly("m1");
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(meterRegistry.get("member.search.query.cache").tag("result", "hit").counter().count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
     //Query By Example 이너조인은 가능하나 아우터조인이 불가능하다는 한계가있다.
     @Test
     public void QueryByExampleTest() throws Exception {
@@ -534,4 +990,164 @@ class MemberRepositoryTest {
             System.out.println("memberProjection.getTeamName = " + memberProjection.getTeamName());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void closedProjections() {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        Member m1 = new Member("m1", 10, teamA);
+        Member m2 = new Member("m2", 20, teamA);
+        em.persist(m1);
+        em.persist(m2);
+
+        em.flush();
+        em.clear();
+
+        //when
+        List<UsernameAgeDto> usernameAge = memberRepository.findUsernameAgeByUsername("m1");
+        List<MemberDto> nativeDto = memberRepository.findNativeMemberDto(Pageable.unpaged());
+
+        //then
+        assertThat(usernameAge).extracting("usernameAndAge").containsExactly("m1 10");
+        assertThat(nativeDto).filteredOn(dto -> m1.getId().equals(dto.getId()))
+                .extracting("username", "teamName").containsExactly(tuple("m1", "teamA"));
+    }
+
+    @Test
+    public void memberDtoPage() {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("dtoPage1", 10, teamA));
+        em.persist(new Member("dtoPage2", 20));
+
+        em.flush();
+        em.clear();
+
+        //when
+        Page<MemberDto> page = memberPageRepository.findMemberDto(
+                PageRequest.of(0, 2000, Sort.by("username")), PageCountStrategy.EXACT);
+
+        //then
+        assertThat(page.getContent()).filteredOn(dto -> dto.getUsername() != null && dto.getUsername().startsWith("dtoPage"))
+                .extracting("username", "teamName")
+                .containsExactly(tuple("dtoPage1", "teamA"), tuple("dtoPage2", null));
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero(); //엔티티를 영속성 컨텍스트에 올리지 않는다
+    }
+
+    @Test
+    public void nearCacheWithNegativeCaching() {
+        //given
+        Member member = new Member("near1", 10);
+        em.persist(member);
+        em.flush();
+        em.clear();
+        Long missingId = -1L;
+        List<Long> loads = new ArrayList<>();
+
+        //when
+        memberNearCache.get(missingId, () -> { loads.add(missingId); return memberRepository.findMemberDtoById(missingId); });
+        Optional<MemberDto> missing = memberNearCache.get(missingId, () -> { loads.add(missingId); return memberRepository.findMemberDtoById(missingId); });
+        memberNearCache.get(member.getId(), () -> { loads.add(member.getId()); return memberRepository.findMemberDtoById(member.getId()); });
+
+        Member found = memberRepository.findById(member.getId()).orElseThrow();
+        found.setUsername("near2");
+        em.flush(); //@PostUpdate -> 캐시에서 제거
+
+        Optional<MemberDto> reloaded = memberNearCache.get(member.getId(), () -> { loads.add(member.getId()); return memberRepository.findMemberDtoById(member.getId()); });
+
+        //then
+        assertThat(missing).isEmpty();
+        assertThat(loads).containsExactly(missingId, member.getId(), member.getId()); //없는 id 는 한 번만 조회
+        assertThat(reloaded.orElseThrow().getUsername()).isEqualTo("near2");
+    }
+
+    @Test
+    public void changeStamp() {
+        //given
+        Member stamp1 = new Member("stamp1", 10);
+        em.persist(stamp1);
+        em.flush();
+        MemberChangeStamp before = memberPageRepository.findChangeStamp();
+
+        //when
+        em.persist(new Member("stamp2", 20));
+        em.flush();
+        MemberChangeStamp after = memberPageRepository.findChangeStamp();
+        em.persist(new Team("stampTeam")); //팀이 추가되거나 이름이 바뀌어도 표시가 바뀐다
+        em.flush();
+        MemberChangeStamp afterTeam = memberPageRepository.findChangeStamp();
+        em.remove(stamp1); //삭제는 수정 시각을 바꾸지 않는다 -- 건수로 알아낸다
+        em.flush();
+        MemberChangeStamp afterDelete = memberPageRepository.findChangeStamp();
+
+        //then
+        assertThat(after.getCount()).isEqualTo(before.getCount() + 1);
+        assertThat(after.getMemberLastModifiedDate()).isNotNull();
+        assertThat(after.etag("page=0")).isNotEqualTo(before.etag("page=0"));
+        assertThat(afterTeam.getTeamLastModifiedDate()).isNotNull();
+        assertThat(afterTeam.etag("page=0")).isNotEqualTo(after.etag("page=0"));
+        assertThat(after.etag("page=0")).isNotEqualTo(after.etag("page=1")); //페이지마다 ETag 가 다르다
+        assertThat(afterDelete.getMemberLastModifiedDate()).isEqualTo(afterTeam.getMemberLastModifiedDate());
+        assertThat(afterDelete.etag("page=0")).isNotEqualTo(afterTeam.etag("page=0"));
+    }
+
+    //change_seq 는 커밋할 때 붙으므로 테스트 트랜잭션 없이 저장마다 커밋한다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void changedSinceWatermark() {
+        //given
+        memberRepository.save(new Member("sync1", 10));
+        memberRepository.save(new Member("sync2", 20));
+
+        //처음부터 끝까지 읽어서 현재 워터마크를 구한다.
+        String watermark = null;
+        ChangeSlice<MemberDto> slice;
+        do {
+            slice = memberRepository.findChangedSince(watermark, 1000);
+            watermark = slice.getNextWatermark();
+        } while (slice.isHasMore());
+
+        //when
+        Member changed = memberRepository.findListByUsername("sync1").get(0);
+        changed.setAge(11);
+        memberRepository.save(changed);
+        ChangeSlice<MemberDto> delta = memberRepository.findChangedSince(watermark, 1000);
+        ChangeSlice<MemberDto> empty = memberRepository.findChangedSince(delta.getNextWatermark(), 1000);
+
+        //then
+        assertThat(slice.getContent()).isNotEmpty();
+        assertThat(delta.getContent()).extracting("username").containsExactly("sync1");
+        assertThat(empty.getContent()).isEmpty();
+        assertThat(empty.getNextWatermark()).isEqualTo(delta.getNextWatermark()); //바뀐 게 없으면 워터마크 그대로
+        assertThatThrownBy(() -> memberRepository.findChangedSince(KeysetCursor.of("abc", 1L).encode(), 10))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    public void sqlTraceAllMode() throws Exception {
+        //given
+        SqlTraceMode mode = sqlTraceListener.getMode();
+        double sampleRate = sqlTraceListener.getSampleRate();
+        Duration slowThreshold = sqlTraceListener.getSlowThreshold();
+        Counter logged = meterRegistry.counter("sql.trace", "result", "logged");
+        double before = logged.count();
+
+        try {
+            //when
+            sqlTraceListener.change(SqlTraceMode.ALL, sampleRate, slowThreshold);
+            memberRepository.findMemberCustom();
+
+            //then -- 로그는 sql-trace 스레드가 남기므로 잠깐 기다린다.
+            for (int i = 0; i < 50 && logged.count() == before; i++) {
+                Thread.sleep(20);
+            }
+            assertThat(logged.count()).isGreaterThan(before);
+        } finally {
+            sqlTraceListener.change(mode, sampleRate, slowThreshold);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberSearchCondition;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//회원 검색 조건의 모든 조합(빈 조건 제외)으로 /members/search 가 실행하는 SQL(내용 + count)을 H2 EXPLAIN 으로 확인한다.
+//실행 계획에 tableScan 이 있으면 그 조합에 맞는 인덱스가 없는 것 -- Member, Team 의 @Table(indexes) 를 확인할 것
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=study.datajpa.repository.MemberSearchExplainTest$CapturedSql")
+@Transactional
+class MemberSearchExplainTest {
+
+    private static final int CONDITION_COUNT = 6;
+
+    //두 번째 페이지(크기 1)를 요청하면 내용이 몇 건이든 count 쿼리가 나간다.
+    private static final Pageable COUNTED_PAGE = PageRequest.of(1, 1, Sort.by("username"));
+
+    @Autowired
+    private MemberSearchRepository memberSearchRepository;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    public void everySearchCombinationUsesIndex() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+
+        for (int shape = 1; shape < (1 << CONDITION_COUNT); shape++) {
+            MemberSearchCondition condition = condition(shape);
+
+            //when
+            CapturedSql.clear();
+            memberSearchRepository.search(condition, COUNTED_PAGE);
+
+            //then
+            assertThat(CapturedSql.statements()).hasSize(2);
+            assertThat(CapturedSql.statements()).anyMatch(sql -> sql.toLowerCase().contains("count("));
+            for (String sql : CapturedSql.statements()) {
+                assertThat(explain(sql))
+                        .as("%s%n%s", condition, sql)
+                        .doesNotContainIgnoringCase("tableScan");
+            }
+        }
+    }
+
+    private MemberSearchCondition condition(int shape) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & 1) != 0) condition.setUsername("member1");
+        if ((shape & 1 << 1) != 0) condition.setTeamName("teamA");
+        if ((shape & 1 << 2) != 0) condition.setAgeGoe(5);
+        if ((shape & 1 << 3) != 0) condition.setAgeLoe(15);
+        if ((shape & 1 << 4) != 0) condition.setCreatedFrom(LocalDateTime.now().minusDays(1));
+        if ((shape & 1 << 5) != 0) condition.setCreatedTo(LocalDateTime.now().plusDays(1));
+        return condition;
+    }
+
+    //EXPLAIN 은 실행하지 않고 계획만 보므로 파라미터는 null 로 채운다.
+    private String explain(String sql) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("explain " + sql)) {
+                int parameterCount = ps.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameterCount; i++) {
+                    ps.setNull(i, Types.NULL);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    //하이버네이트가 만든 SQL 을 모아 둔다. (hibernate.session_factory.statement_inspector)
+    public static class CapturedSql implements StatementInspector {
+
+        private static final List<String> STATEMENTS = new ArrayList<>();
+
+        static synchronized void clear() {
+            STATEMENTS.clear();
+        }
+
+        static synchronized List<String> statements() {
+            return new ArrayList<>(STATEMENTS);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            synchronized (CapturedSql.class) {
+                if (sql.trim().toLowerCase().startsWith("select")) {
+                    STATEMENTS.add(sql);
+                }
+            }
+            return sql;
+        }
+    }
+}
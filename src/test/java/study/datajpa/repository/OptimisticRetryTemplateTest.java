@@ -0,0 +1,58 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//시도마다 새 트랜잭션으로 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행한다.
+@SpringBootTest
+class OptimisticRetryTemplateTest {
+
+    @Autowired
+    private OptimisticRetryTemplate optimisticRetryTemplate;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    public void retryOnVersionConflict() {
+        //given
+        Member member = memberRepository.save(new Member("optimistic1", 10));
+        TransactionTemplate other = new TransactionTemplate(transactionManager);
+        other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        //when
+        AtomicInteger attempts = new AtomicInteger();
+        optimisticRetryTemplate.execute(status -> {
+            Member found = em.find(Member.class, member.getId());
+            if (attempts.incrementAndGet() == 1) {
+                //첫 시도 중에 다른 트랜잭션이 먼저 같은 회원을 바꾸고 커밋한다 -> 이 시도는 version 충돌
+                other.executeWithoutResult(s -> em.find(Member.class, member.getId()).setAge(100));
+            }
+            found.setAge(found.getAge() + 1);
+            return null;
+        });
+
+        //then
+        Member result = memberRepository.findById(member.getId()).orElseThrow();
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(result.getAge()).isEqualTo(101); //다른 트랜잭션의 변경을 다시 읽고 반영
+        assertThat(result.getVersion()).isEqualTo(2L);
+    }
+}